@@ -0,0 +1,51 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.DifferentialPrivacy;
+import com.master_thesis.client.HomomorphicHash;
+import com.master_thesis.client.data.DifferentialPrivacyData;
+import com.master_thesis.client.util.NoiseGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.master_thesis.client.benchmark.InMemoryPublicParameters.SUBSTATION;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DifferentialPrivacyBenchmark {
+
+    @Param({"5", "10", "50"})
+    private int servers;
+
+    @Param({"2", "4"})
+    private int securityThreshold;
+
+    @Param({"107", "1024"})
+    private int fieldBits;
+
+    @Param({"10", "32"})
+    private int secretBits;
+
+    private DifferentialPrivacy differentialPrivacy;
+    private BigInteger secret;
+
+    @Setup
+    public void setUp() {
+        InMemoryPublicParameters publicParameters = new InMemoryPublicParameters(servers, securityThreshold, fieldBits, new Random(42));
+        NoiseGenerator noiseGenerator = new NoiseGenerator();
+        noiseGenerator.computeGaussianVariance(100, servers);
+        differentialPrivacy = new DifferentialPrivacy(publicParameters, noiseGenerator, new HomomorphicHash(publicParameters));
+        secret = publicParameters.randomSecret(secretBits);
+    }
+
+    @Benchmark
+    public DifferentialPrivacyData shareSecret() {
+        return differentialPrivacy.shareSecret(secret, SUBSTATION);
+    }
+}
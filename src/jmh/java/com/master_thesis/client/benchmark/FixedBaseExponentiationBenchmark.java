@@ -0,0 +1,59 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.FixedBaseExponentiation;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the computation of tau with modPow to the precomputed tables. The 107 bit modulus is the size of the
+ * homomorphic hash field, the larger ones are the sizes of NRoof in the Linear Signature construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FixedBaseExponentiationBenchmark {
+
+    private static final int EXPONENTS = 64;
+
+    @Param({"107", "1024", "2048"})
+    private int modulusBits;
+
+    private BigInteger modulus;
+    private BigInteger base;
+    private BigInteger[] exponents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        modulus = BigInteger.probablePrime(modulusBits, random);
+        base = new BigInteger(modulusBits - 1, random);
+        exponents = new BigInteger[EXPONENTS];
+        for (int i = 0; i < EXPONENTS; i++) {
+            exponents[i] = new BigInteger(modulusBits, random);
+        }
+        // Build the table before measuring, it is built once and then shared.
+        FixedBaseExponentiation.modPow(base, exponents[0], modulus, modulusBits + 1);
+    }
+
+    @Benchmark
+    public BigInteger modPow() {
+        return base.modPow(nextExponent(), modulus);
+    }
+
+    @Benchmark
+    public BigInteger fixedBase() {
+        return FixedBaseExponentiation.modPow(base, nextExponent(), modulus, modulusBits + 1);
+    }
+
+    private BigInteger nextExponent() {
+        next = (next + 1) % EXPONENTS;
+        return exponents[next];
+    }
+}
@@ -0,0 +1,52 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.HomomorphicHash;
+import com.master_thesis.client.data.HomomorphicHashData;
+import com.master_thesis.client.data.ShareMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.master_thesis.client.benchmark.InMemoryPublicParameters.SUBSTATION;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HomomorphicHashBenchmark {
+
+    @Param({"5", "10", "50"})
+    private int servers;
+
+    @Param({"2", "4"})
+    private int securityThreshold;
+
+    @Param({"107", "1024"})
+    private int fieldBits;
+
+    @Param({"10", "32"})
+    private int secretBits;
+
+    @Param({"INTEGER", "FIELD"})
+    private ShareMode shareMode;
+
+    private HomomorphicHash homomorphicHash;
+    private BigInteger secret;
+
+    @Setup
+    public void setUp() {
+        InMemoryPublicParameters publicParameters = new InMemoryPublicParameters(servers, securityThreshold, fieldBits, new Random(42));
+        homomorphicHash = new HomomorphicHash(publicParameters);
+        homomorphicHash.setShareMode(shareMode);
+        secret = publicParameters.randomSecret(secretBits);
+    }
+
+    @Benchmark
+    public HomomorphicHashData shareSecret() {
+        return homomorphicHash.shareSecret(secret, SUBSTATION);
+    }
+}
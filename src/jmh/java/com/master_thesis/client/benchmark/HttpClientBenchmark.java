@@ -0,0 +1,76 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.data.HomomorphicHashData;
+import com.master_thesis.client.util.HttpAdapter;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time of one request to a local stand-in for a server, with a new HttpClient for every request, as the
+ * adapter sent them before, and with the pooled client of the HttpAdapter, which reuses one connection.
+ * Each new client is closed after its request where the JDK can close clients (21 and later), so that its
+ * connection and selector thread do not pile up; on older JDKs they are released when the client is collected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HttpClientBenchmark {
+
+    private HttpServer server;
+    private URI uri;
+    private HttpRequest request;
+    private HttpAdapter httpAdapter;
+    private HomomorphicHashData.ServerData share;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/hash-data");
+        request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+        httpAdapter = new HttpAdapter();
+        share = new HomomorphicHashData(Map.of(uri, BigInteger.TEN), BigInteger.ONE, BigInteger.TWO).getServerData().get(uri);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public HttpResponse<Void> newClientPerRequest() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding());
+        } finally {
+            if (client instanceof AutoCloseable)
+                ((AutoCloseable) client).close();
+        }
+    }
+
+    @Benchmark
+    public void sharedClient() {
+        httpAdapter.sendServerShare(uri, share);
+    }
+}
@@ -0,0 +1,108 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.data.LinearSignatureData.PublicData;
+import com.master_thesis.client.data.Server;
+import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.ServerSet;
+import com.master_thesis.client.util.SubstationParameters;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Public parameters that are generated in memory instead of fetched from the coordinator, such that the
+ * benchmarks only measure the computations of the client.
+ */
+public class InMemoryPublicParameters extends PublicParameters {
+
+    public static final int SUBSTATION = 0;
+    private final Random random;
+    private final SubstationParameters parameters;
+    private final ServerSet serverSet;
+    private BigInteger[] rsaN;
+    private PublicData linearPublicData;
+
+    public InMemoryPublicParameters(int servers, int securityThreshold, int fieldBits, Random random) {
+        super(null, 300);
+        this.random = random;
+        BigInteger fieldBase = BigInteger.probablePrime(fieldBits, random);
+        BigInteger generator = randomBelow(fieldBase.subtract(BigInteger.TWO)).add(BigInteger.TWO);
+        this.parameters = new SubstationParameters(SUBSTATION, fieldBase, generator, securityThreshold, 1);
+        List<Server> serverList = new ArrayList<>();
+        for (int i = 0; i < servers; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            serverList.add(server);
+        }
+        this.serverSet = new ServerSet(serverList, 1);
+    }
+
+    /**
+     * Adds values shaped like the RSA N and N' of the coordinator: N = (2p'+1)(2q'+1) and N' = p'q'.
+     */
+    public InMemoryPublicParameters withRsa(int primeBits) {
+        BigInteger pPrime = BigInteger.probablePrime(primeBits, random);
+        BigInteger qPrime = BigInteger.probablePrime(primeBits, random);
+        BigInteger n = pPrime.shiftLeft(1).add(BigInteger.ONE).multiply(qPrime.shiftLeft(1).add(BigInteger.ONE));
+        rsaN = new BigInteger[]{n, pPrime.multiply(qPrime)};
+        return this;
+    }
+
+    /**
+     * Adds Linear Signature public data for a substation with the given number of clients. The field base is used
+     * as N and NRoof is the product of two primes of half the modulus length each.
+     */
+    public InMemoryPublicParameters withLinear(int modulusBits, int clients) {
+        BigInteger n = parameters.getFieldBase();
+        BigInteger fidPrime = BigInteger.probablePrime(n.bitLength() + 1, random);
+        BigInteger eN = n.multiply(fidPrime);
+        BigInteger p, q;
+        do {
+            p = BigInteger.probablePrime(modulusBits / 2, random);
+            q = BigInteger.probablePrime(modulusBits / 2, random);
+        } while (p.equals(q) || !eN.gcd(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE))).equals(BigInteger.ONE));
+        BigInteger nRoof = p.multiply(q);
+        BigInteger[] h = new BigInteger[clients];
+        for (int i = 0; i < clients; i++) {
+            h[i] = randomBelow(nRoof);
+        }
+        linearPublicData = new PublicData(n, nRoof, fidPrime, randomBelow(nRoof), randomBelow(nRoof), h, new BigInteger[]{p, q});
+        return this;
+    }
+
+    public BigInteger randomSecret(int secretBits) {
+        return new BigInteger(secretBits - 1, random).setBit(secretBits - 1);
+    }
+
+    @Override
+    public ServerSet getServerSet() {
+        return serverSet;
+    }
+
+    @Override
+    public SubstationParameters getSubstationParameters(int substationID) {
+        return parameters;
+    }
+
+    @Override
+    public BigInteger[] getRsaN(int substationID) {
+        return rsaN;
+    }
+
+    @Override
+    public PublicData getLinearPublicData(int substationID, int clientID, int fid) {
+        return linearPublicData;
+    }
+
+    private BigInteger randomBelow(BigInteger bound) {
+        BigInteger value;
+        do {
+            value = new BigInteger(bound.bitLength(), random);
+        } while (value.compareTo(bound) >= 0 || value.signum() == 0);
+        return value;
+    }
+}
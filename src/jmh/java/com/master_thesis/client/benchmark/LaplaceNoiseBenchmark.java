@@ -0,0 +1,91 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.differentialprivacy.LaplaceNoise;
+import com.master_thesis.client.util.NoiseGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time of one noise sample of the Laplace mechanism, continuous and discrete, next to the Gaussian noise
+ * with the same variance. The aggregate variants give the readings of all meters of a substation noise and
+ * sum them, per reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LaplaceNoiseBenchmark {
+
+    private static final int METERS = 1024;
+    private static final double EPSILON = 1 / 16d;
+    private static final long L1_SENSITIVITY = 1;
+    // The variance of Laplace noise of scale b is 2b^2.
+    private static final double VARIANCE = 2 * Math.pow(L1_SENSITIVITY / EPSILON, 2);
+
+    private NoiseGenerator noiseGenerator;
+    private LaplaceNoise laplaceNoise;
+
+    @Setup
+    public void setUp() {
+        noiseGenerator = new NoiseGenerator();
+        laplaceNoise = new LaplaceNoise();
+    }
+
+    @State(Scope.Thread)
+    public static class Readings {
+        private final long[] readings = new long[METERS];
+        private final long[] noise = new long[METERS];
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            for (int i = 0; i < METERS; i++) {
+                readings[i] = random.nextInt(5000);
+            }
+        }
+    }
+
+    @Benchmark
+    public int gaussian() {
+        return noiseGenerator.generateGaussianIntegerNoise(0, VARIANCE);
+    }
+
+    @Benchmark
+    public double laplace() {
+        return laplaceNoise.addNoise(0d, 1, L1_SENSITIVITY, EPSILON, null);
+    }
+
+    @Benchmark
+    public long discreteLaplace() {
+        return laplaceNoise.addNoise(0L, L1_SENSITIVITY, EPSILON, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(METERS)
+    public long[] discreteLaplaceBatch(Readings readings) {
+        System.arraycopy(readings.readings, 0, readings.noise, 0, METERS);
+        laplaceNoise.addNoise(readings.noise, L1_SENSITIVITY, EPSILON);
+        return readings.noise;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(METERS)
+    public long gaussianAggregate(Readings readings) {
+        noiseGenerator.fillGaussianIntegerNoise(readings.noise, 0, VARIANCE);
+        long sum = 0;
+        for (int i = 0; i < METERS; i++) {
+            sum += readings.readings[i] + readings.noise[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(METERS)
+    public long discreteLaplaceAggregate(Readings readings) {
+        return laplaceNoise.addNoiseAndSum(readings.readings, METERS, L1_SENSITIVITY, EPSILON);
+    }
+}
@@ -0,0 +1,60 @@
+package com.master_thesis.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.client.data.LinearSignatureData.ClientData;
+import com.master_thesis.client.data.LinearSignatureData.PublicData;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Linear Signature public data that is downloaded and parsed for every fid: the full data with h of
+ * every client in the substation, or only fidPrime and the h of the client. The sizes of both are printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LinearPublicDataBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int clients;
+
+    @Param({"1024", "2048"})
+    private int modulusBits;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String fullJson;
+    private String clientJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        BigInteger[] h = new BigInteger[clients];
+        for (int i = 0; i < clients; i++) {
+            h[i] = new BigInteger(modulusBits, random);
+        }
+        BigInteger fidPrime = BigInteger.probablePrime(108, random);
+        PublicData full = new PublicData(new BigInteger(107, random), new BigInteger(modulusBits, random), fidPrime,
+                new BigInteger(modulusBits, random), new BigInteger(modulusBits, random), h,
+                new BigInteger[]{new BigInteger(modulusBits / 2, random), new BigInteger(modulusBits / 2, random)});
+        fullJson = objectMapper.writeValueAsString(full);
+        clientJson = objectMapper.writeValueAsString(new ClientData(fidPrime, h[0]));
+        System.out.printf("%n%d clients, %d bit modulus: %d bytes full, %d bytes client-scoped, %d bytes saved per fid%n",
+                clients, modulusBits, fullJson.length(), clientJson.length(), fullJson.length() - clientJson.length());
+    }
+
+    @Benchmark
+    public PublicData parseFull() throws Exception {
+        return objectMapper.readValue(fullJson, PublicData.class);
+    }
+
+    @Benchmark
+    public ClientData parseClientScoped() throws Exception {
+        return objectMapper.readValue(clientJson, ClientData.class);
+    }
+}
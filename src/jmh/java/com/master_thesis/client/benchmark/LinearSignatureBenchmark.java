@@ -0,0 +1,84 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.LinearSignature;
+import com.master_thesis.client.data.LinearSignatureData;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.master_thesis.client.benchmark.InMemoryPublicParameters.SUBSTATION;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LinearSignatureBenchmark {
+
+    private static final int FID = 1;
+    private static final int CLIENT_ID = 0;
+
+    @Param({"5", "10", "50"})
+    private int servers;
+
+    @Param({"2", "4"})
+    private int securityThreshold;
+
+    @Param({"107", "256"})
+    private int fieldBits;
+
+    @Param({"10", "32"})
+    private int secretBits;
+
+    @Param({"1024", "2048"})
+    private int modulusBits;
+
+    // Prepares the secret-independent part of the partial proof before every invocation of shareAndProve.
+    @Param({"false", "true"})
+    private boolean precomputed;
+
+    private LinearSignature linearSignature;
+    private LinearSignatureData sharedData;
+    private BigInteger secret;
+
+    @Setup
+    public void setUp() {
+        InMemoryPublicParameters publicParameters = new InMemoryPublicParameters(servers, securityThreshold, fieldBits, new Random(42))
+                .withLinear(modulusBits, 10);
+        linearSignature = new LinearSignature(publicParameters);
+        secret = publicParameters.randomSecret(secretBits);
+        sharedData = shareSecret();
+        linearSignature.setPrecompute(0);
+    }
+
+    @Benchmark
+    public LinearSignatureData shareSecret() {
+        LinearSignatureData data = linearSignature.shareSecret(secret, FID, SUBSTATION);
+        data.setFid(FID).setClientID(CLIENT_ID).setSubstationID(SUBSTATION);
+        return data;
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareProof() {
+        if (precomputed)
+            linearSignature.prepareProof(SUBSTATION, CLIENT_ID, FID);
+    }
+
+    @Benchmark
+    public LinearSignatureData partialProof() {
+        return linearSignature.partialProof(sharedData, secret);
+    }
+
+    /**
+     * The work from the reading to the data that is sent.
+     */
+    @Benchmark
+    public LinearSignatureData shareAndProve() {
+        LinearSignatureData data = linearSignature.shareSecret(secret, FID, SUBSTATION, CLIENT_ID);
+        data.setFid(FID).setClientID(CLIENT_ID).setSubstationID(SUBSTATION);
+        return linearSignature.partialProof(data, secret);
+    }
+}
@@ -0,0 +1,51 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.util.LoadProfile;
+import com.master_thesis.client.util.Reader;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a reading of a synthetic load profile with a uniform random reading of the bits mode of the
+ * reader. Both go through Reader.readValue, so both include creating the BigInteger of the reading. The meters
+ * of the profile are read in turn, as in a simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoadProfileBenchmark {
+
+    @Param({"1", "10000"})
+    private int meters;
+
+    private Reader bits;
+    private Reader[] profiles;
+    private int meter;
+
+    @Setup
+    public void setUp() {
+        bits = new Reader();
+        Reader template = new Reader();
+        template.setLoadProfile(new LoadProfile(42, 15));
+        profiles = new Reader[meters];
+        for (int i = 0; i < meters; i++) {
+            profiles[i] = new Reader(template);
+        }
+    }
+
+    @Benchmark
+    public BigInteger bits() {
+        return bits.readValue();
+    }
+
+    @Benchmark
+    public BigInteger loadProfile() {
+        meter = meter + 1 == meters ? 0 : meter + 1;
+        return profiles[meter].readValue();
+    }
+}
@@ -0,0 +1,73 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.IntegerMatrix;
+import org.ejml.simple.SimpleMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the matrix work of the RSA construction, the determinant of the first t rows and the product with
+ * the secret key vector, done in doubles with EJML and exactly with IntegerMatrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatrixBenchmark {
+
+    @Param({"20", "50", "100"})
+    private int servers;
+
+    @Param({"5", "20"})
+    private int securityThreshold;
+
+    @Param({"16", "31"})
+    private int fieldBits;
+
+    private double[][] doubleValues;
+    private double[][] doubleVector;
+    private BigInteger[][] values;
+    private BigInteger[] vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        doubleValues = new double[servers][securityThreshold];
+        values = new BigInteger[servers][securityThreshold];
+        for (int row = 0; row < servers; row++) {
+            for (int col = 0; col < securityThreshold; col++) {
+                int value = random.nextInt(1 << (fieldBits - 1));
+                doubleValues[row][col] = value;
+                values[row][col] = BigInteger.valueOf(value);
+            }
+        }
+        doubleVector = new double[securityThreshold][1];
+        vector = new BigInteger[securityThreshold];
+        for (int i = 0; i < securityThreshold; i++) {
+            int value = random.nextInt(1 << (fieldBits - 1));
+            doubleVector[i][0] = value;
+            vector[i] = BigInteger.valueOf(value);
+        }
+    }
+
+    @Benchmark
+    public Object ejml() {
+        SimpleMatrix matrix = new SimpleMatrix(doubleValues);
+        long determinant = Math.round(matrix.rows(0, matrix.numCols()).determinant());
+        SimpleMatrix skShares = matrix.mult(new SimpleMatrix(doubleVector));
+        return determinant + skShares.get(0, 0);
+    }
+
+    @Benchmark
+    public Object exact() {
+        IntegerMatrix matrix = new IntegerMatrix(values);
+        BigInteger determinant = matrix.leadingDeterminant();
+        BigInteger[] skShares = matrix.multiply(vector);
+        return determinant.add(skShares[0]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.IntegerMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares drawing the matrix of the RSA construction until it has full rank and a non-zero determinant with
+ * drawing it in one pass with an invertible leading block. Both include computing the exact determinant once.
+ * Small fields make the redraws of the first approach more likely.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatrixGenerationBenchmark {
+
+    @Param({"20", "50", "100"})
+    private int servers;
+
+    @Param({"5", "20"})
+    private int securityThreshold;
+
+    @Param({"2", "16", "31"})
+    private int fieldBits;
+
+    private BigInteger fieldBase;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        fieldBase = BigInteger.probablePrime(fieldBits, random);
+    }
+
+    @Benchmark
+    public BigInteger rejection() {
+        IntegerMatrix matrix;
+        BigInteger[][] values = new BigInteger[servers][securityThreshold];
+        do {
+            for (int row = 0; row < servers; row++) {
+                for (int col = 0; col < securityThreshold; col++) {
+                    values[row][col] = BigInteger.valueOf(random.nextInt(fieldBase.intValue()));
+                }
+            }
+            matrix = new IntegerMatrix(values);
+        } while (matrix.rank() != securityThreshold || matrix.leadingDeterminant().signum() == 0);
+        return matrix.leadingDeterminant();
+    }
+
+    @Benchmark
+    public BigInteger onePass() {
+        return IntegerMatrix.randomFullRank(servers, securityThreshold, fieldBase, random).leadingDeterminant();
+    }
+}
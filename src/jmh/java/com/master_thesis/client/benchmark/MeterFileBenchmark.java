@@ -0,0 +1,112 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.util.MappedCsv;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading meter values from a csv file the way the reader did before, loading it into a queue of
+ * boxed integers that is rotated on every reading, with reading it through cursors over the mapped file.
+ * Every meter reads its own column of the file, load and map include getting the file ready to be read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MeterFileBenchmark {
+
+    @Param({"1000000"})
+    private int lines;
+
+    @Param({"1", "16"})
+    private int meters;
+
+    private Path path;
+    private Queue<Integer>[] queues;
+    private MappedCsv.Cursor[] cursors;
+    private int meter;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        path = Files.createTempFile("meter-file-benchmark", ".csv");
+        try (var writer = Files.newBufferedWriter(path)) {
+            for (int line = 0; line < lines; line++) {
+                for (int column = 0; column < meters; column++) {
+                    if (column > 0)
+                        writer.write(',');
+                    writer.write(Integer.toString(random.nextInt(5000)));
+                }
+                writer.write('\n');
+            }
+        }
+        queues = load();
+        cursors = map();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public Integer boxedQueue() {
+        Queue<Integer> queue = queues[next()];
+        queue.add(queue.peek());
+        return queue.poll();
+    }
+
+    @Benchmark
+    public long mappedCursor() {
+        return cursors[next()].nextLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Queue<Integer>[] load() {
+        @SuppressWarnings("unchecked")
+        Queue<Integer>[] queues = new Queue[meters];
+        for (int column = 0; column < meters; column++) {
+            queues[column] = new LinkedList<>();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                for (int column = 0; column < meters; column++) {
+                    queues[column].add(Integer.parseInt(values[column]));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return queues;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MappedCsv.Cursor[] map() throws IOException {
+        MappedCsv csv = MappedCsv.open(path);
+        MappedCsv.Cursor[] cursors = new MappedCsv.Cursor[meters];
+        for (int column = 0; column < meters; column++) {
+            cursors[column] = csv.cursor(column);
+        }
+        return cursors;
+    }
+
+    private int next() {
+        meter = meter + 1 == meters ? 0 : meter + 1;
+        return meter;
+    }
+}
@@ -0,0 +1,97 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.FixedBaseExponentiation;
+import com.master_thesis.client.crypto.MultiExponentiation;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The product g1^s * g2^xR mod NRoof of the Linear Signature partial proof. s has the bit length of eN, which
+ * is N times a fid prime of one more bit than N, and xR has the bit length of N.
+ * straus is a reference implementation of Straus' trick on BigInteger, it is measured against the JDK modPow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MultiExponentiationBenchmark {
+
+    @Param({"107", "256"})
+    private int fieldBits;
+
+    @Param({"1024", "2048"})
+    private int modulusBits;
+
+    private BigInteger nRoof;
+    private BigInteger g1;
+    private BigInteger g2;
+    private BigInteger s;
+    private BigInteger xR;
+    private int eNBits;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        nRoof = BigInteger.probablePrime(modulusBits / 2, random).multiply(BigInteger.probablePrime(modulusBits / 2, random));
+        g1 = new BigInteger(modulusBits - 1, random);
+        g2 = new BigInteger(modulusBits - 1, random);
+        eNBits = 2 * fieldBits + 1;
+        s = new BigInteger(eNBits, random);
+        xR = new BigInteger(fieldBits, random);
+    }
+
+    @Benchmark
+    public BigInteger separateModPow() {
+        return g1.modPow(s, nRoof).multiply(g2.modPow(xR, nRoof)).mod(nRoof);
+    }
+
+    @Benchmark
+    public BigInteger straus() {
+        return straus(g1, s, g2, xR, nRoof);
+    }
+
+    @Benchmark
+    public BigInteger fixedBase() {
+        return FixedBaseExponentiation.modPow(g1, s, nRoof, eNBits)
+                .multiply(FixedBaseExponentiation.modPow(g2, xR, nRoof, fieldBits + 1))
+                .mod(nRoof);
+    }
+
+    @Benchmark
+    public BigInteger multiExponentiation() {
+        return MultiExponentiation.modPow(g1, s, eNBits, g2, xR, fieldBits + 1, nRoof);
+    }
+
+    // a^x * b^y mod n, reading two bits of both exponents at a time with a table of a^i * b^j.
+    private static BigInteger straus(BigInteger a, BigInteger x, BigInteger b, BigInteger y, BigInteger n) {
+        int window = 2;
+        int digits = 1 << window;
+        BigInteger[] table = new BigInteger[digits * digits];
+        table[0] = BigInteger.ONE;
+        for (int i = 1; i < digits; i++) {
+            table[i * digits] = table[(i - 1) * digits].multiply(a).mod(n);
+        }
+        for (int i = 0; i < digits; i++) {
+            for (int j = 1; j < digits; j++) {
+                table[i * digits + j] = table[i * digits + j - 1].multiply(b).mod(n);
+            }
+        }
+        int bits = Math.max(x.bitLength(), y.bitLength());
+        BigInteger res = BigInteger.ONE;
+        for (int bit = ((bits - 1) / window) * window; bit >= 0; bit -= window) {
+            for (int k = 0; k < window; k++) {
+                res = res.multiply(res).mod(n);
+            }
+            int i = (x.testBit(bit + 1) ? 2 : 0) | (x.testBit(bit) ? 1 : 0);
+            int j = (y.testBit(bit + 1) ? 2 : 0) | (y.testBit(bit) ? 1 : 0);
+            if (i != 0 || j != 0)
+                res = res.multiply(table[i * digits + j]).mod(n);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,82 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.util.NoiseGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time of one integer noise sample. randomPerCall is how the noise was sampled before, with a new Random
+ * for every sample. secureRandom is the straightforward strong alternative, a shared SecureRandom and its
+ * polar method. The thread-local Ziggurat sampler is measured for single samples and for batches of the
+ * readings of many meters. The contended variants run on four threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NoiseGeneratorBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final double VARIANCE = 100;
+
+    private NoiseGenerator noiseGenerator;
+    private SecureRandom secureRandom;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        noiseGenerator = new NoiseGenerator();
+        secureRandom = SecureRandom.getInstance("DRBG");
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        private final long[] noise = new long[BATCH];
+    }
+
+    @Benchmark
+    public int randomPerCall() {
+        Random r = new Random();
+        return (int) Math.round(r.nextGaussian() * Math.sqrt(VARIANCE));
+    }
+
+    @Benchmark
+    public int secureRandom() {
+        return (int) Math.round(secureRandom.nextGaussian() * Math.sqrt(VARIANCE));
+    }
+
+    @Benchmark
+    public int ziggurat() {
+        return noiseGenerator.generateGaussianIntegerNoise(0, VARIANCE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] zigguratBatch(Batch batch) {
+        noiseGenerator.fillGaussianIntegerNoise(batch.noise, 0, VARIANCE);
+        return batch.noise;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int randomPerCallContended() {
+        return randomPerCall();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int secureRandomContended() {
+        return secureRandom();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int zigguratContended() {
+        return ziggurat();
+    }
+}
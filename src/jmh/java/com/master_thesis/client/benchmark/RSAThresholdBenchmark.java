@@ -0,0 +1,59 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.RSAThreshold;
+import com.master_thesis.client.data.RSAThresholdData;
+import com.master_thesis.client.util.RSAKeyEpochs;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.master_thesis.client.benchmark.InMemoryPublicParameters.SUBSTATION;
+
+/**
+ * The RSA construction draws its matrix entries as int values below the field base, so the field is kept within 31 bits.
+ * With one fid per epoch the key material of every reading is generated on the background thread of the epochs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RSAThresholdBenchmark {
+
+    @Param({"5", "10", "20"})
+    private int servers;
+
+    @Param({"2", "4"})
+    private int securityThreshold;
+
+    @Param({"16", "31"})
+    private int fieldBits;
+
+    @Param({"10", "32"})
+    private int secretBits;
+
+    @Param({"256"})
+    private int rsaPrimeBits;
+
+    @Param({"1", "100"})
+    private long epochFids;
+
+    private RSAThreshold rsaThreshold;
+    private BigInteger secret;
+
+    @Setup
+    public void setUp() {
+        InMemoryPublicParameters publicParameters = new InMemoryPublicParameters(servers, securityThreshold, fieldBits, new Random(42))
+                .withRsa(rsaPrimeBits);
+        rsaThreshold = new RSAThreshold(publicParameters, new RSAKeyEpochs(publicParameters, epochFids, 0));
+        secret = publicParameters.randomSecret(secretBits);
+    }
+
+    @Benchmark
+    public RSAThresholdData shareSecret() {
+        return rsaThreshold.shareSecret(secret, SUBSTATION);
+    }
+}
@@ -0,0 +1,54 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.CrtKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways partialProof can solve x^(eN) = y mod NRoof for x: one exponentiation modulo NRoof
+ * with the inverse of eN modulo the totient, or one exponentiation modulo each factor of NRoof.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RootExtractionBenchmark {
+
+    @Param({"1024", "2048"})
+    private int modulusBits;
+
+    @Param({"107", "256"})
+    private int fieldBits;
+
+    private BigInteger p, q, nRoof, eN, value;
+    private CrtKey crtKey;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        eN = BigInteger.probablePrime(fieldBits, random).multiply(BigInteger.probablePrime(fieldBits + 1, random));
+        do {
+            p = BigInteger.probablePrime(modulusBits / 2, random);
+            q = BigInteger.probablePrime(modulusBits / 2, random);
+        } while (p.equals(q) || !eN.gcd(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE))).equals(BigInteger.ONE));
+        nRoof = p.multiply(q);
+        value = new BigInteger(modulusBits - 1, random);
+        crtKey = new CrtKey(p, q);
+    }
+
+    @Benchmark
+    public BigInteger fullModulus() {
+        BigInteger totient = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        return value.modPow(eN.modInverse(totient), nRoof);
+    }
+
+    @Benchmark
+    public BigInteger crt() {
+        return crtKey.root(value, eN);
+    }
+}
@@ -0,0 +1,76 @@
+package com.master_thesis.client.benchmark;
+
+import com.master_thesis.client.crypto.ShareKit;
+import com.master_thesis.client.data.ShareMode;
+import com.master_thesis.client.util.ServerSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.master_thesis.client.benchmark.InMemoryPublicParameters.SUBSTATION;
+
+/**
+ * Splits a Homomorphic Hash share in the work that is done before the reading, generating the kit, and the
+ * work that is left once the secret is known. A new kit is generated before every invocation of online.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShareKitBenchmark {
+
+    @Param({"5", "10", "50"})
+    private int servers;
+
+    @Param({"2", "4"})
+    private int securityThreshold;
+
+    @Param({"107", "1024"})
+    private int fieldBits;
+
+    @Param({"10", "32"})
+    private int secretBits;
+
+    @Param({"INTEGER", "FIELD"})
+    private ShareMode shareMode;
+
+    private Random random;
+    private BigInteger fieldBase;
+    private BigInteger generator;
+    private ServerSet serverSet;
+    private BigInteger secret;
+    private ShareKit kit;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        InMemoryPublicParameters publicParameters = new InMemoryPublicParameters(servers, securityThreshold, fieldBits, random);
+        fieldBase = publicParameters.getFieldBase(SUBSTATION);
+        generator = publicParameters.getGenerator(SUBSTATION);
+        serverSet = publicParameters.getServerSet();
+        secret = publicParameters.randomSecret(secretBits);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareKit() {
+        kit = ShareKit.generate(fieldBase, generator, securityThreshold, serverSet, shareMode, random);
+    }
+
+    @Benchmark
+    public ShareKit offline() {
+        return ShareKit.generate(fieldBase, generator, securityThreshold, serverSet, shareMode, random);
+    }
+
+    @Benchmark
+    public void online(Blackhole blackhole) {
+        blackhole.consume(kit.proofComponent(secret));
+        for (int i = 0; i < serverSet.size(); i++) {
+            blackhole.consume(kit.share(i, secret));
+        }
+    }
+}
@@ -1,35 +1,75 @@
 package com.master_thesis.client;
 
 import ch.qos.logback.classic.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.master_thesis.client.crypto.CrtKey;
+import com.master_thesis.client.crypto.MultiExponentiation;
+import com.master_thesis.client.crypto.Polynomial;
 import com.master_thesis.client.data.Construction;
 import com.master_thesis.client.data.LinearSignatureData;
 import com.master_thesis.client.data.LinearSignatureData.PublicData;
 import com.master_thesis.client.data.LinearSignatureData.ServerData;
 import com.master_thesis.client.data.Server;
+import com.master_thesis.client.data.ShareMode;
 import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.ServerSet;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
 import java.net.URI;
 import java.security.SecureRandom;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class LinearSignature {
     private static final Logger log = (Logger) LoggerFactory.getLogger(LinearSignature.class);
+    // Bounds the stored proof kits if fids are prepared but never used.
+    private static final int MAX_PROOF_KITS = 1024;
     private PublicParameters publicParameters;
+    private ShareMode shareMode = ShareMode.INTEGER;
     private final SecureRandom random = new SecureRandom();
+    // NRoof and its factors are the same for many fids, the CRT values derived from them are kept per NRoof.
+    private final Cache<BigInteger, CrtKey> crtKeys = CacheBuilder.newBuilder().maximumSize(16).build();
+    // The parts of the partial proofs of upcoming fids that do not depend on the secret, per substation, fid and client.
+    private final Cache<List<Integer>, ProofKit> proofKits = CacheBuilder.newBuilder().maximumSize(MAX_PROOF_KITS).build();
+    private final ExecutorService precomputer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "linear-precompute");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private int precompute = 4;
+    // The number of partial proofs that were completed from a prepared proof kit.
+    private final AtomicLong preparedProofs = new AtomicLong();
 
     @Autowired
     public LinearSignature(PublicParameters publicParameters) {
         this.publicParameters = publicParameters;
     }
 
+    /**
+     * Selects how the shares are computed, see ShareMode.
+     */
+    @Autowired
+    public void setShareMode(@Value("${client.share-mode.linear:INTEGER}") ShareMode shareMode) {
+        this.shareMode = shareMode;
+    }
+
+    /**
+     * @param precompute the number of upcoming fids to prepare the partial proof for, 0 disables it.
+     */
+    @Autowired
+    public void setPrecompute(@Value("${client.linear.precompute:4}") int precompute) {
+        this.precompute = precompute;
+    }
+
     /**
      * This is the share secret function from the Linear Signature construction.
      *
@@ -37,35 +77,38 @@ public class LinearSignature {
      * @return An object with data that should be sent.
      */
     public LinearSignatureData shareSecret(BigInteger secret, int fid, int substationID) {
+        return shareSecret(secret, fid, substationID, -1);
+    }
+
+    /**
+     * The share secret function for a client whose partial proof of the fid may have been prepared, the nonce
+     * of the prepared proof is used for the share.
+     */
+    public LinearSignatureData shareSecret(BigInteger secret, int fid, int substationID, int clientID) {
         // Find the publicly available information used for this computation.
-        PublicData data = publicParameters.getLinearPublicData(substationID, fid);
+        BigInteger n = publicParameters.getLinearN(substationID, fid);
 
         // Get a random nonce value, using a built in java pseudo random number generator (PRNG).
-        BigInteger nonce = BigInteger.valueOf(random.nextLong()).mod(data.getN());
-        log.info("base: {}, secret: {}, nonce: {}", data.getN(), secret, nonce);
-
-        // We generate a polynomial of order t. The numerical value of t is retrieved inside the function.
-        Function<Integer, BigInteger> polynomial = generatePolynomial(secret, data.getN(), substationID);
+        ProofKit kit = proofKits.getIfPresent(List.of(substationID, fid, clientID));
+        BigInteger nonce = kit != null && kit.n.equals(n) ? kit.nonce : BigInteger.valueOf(random.nextLong()).mod(n);
+        log.info("base: {}, secret: {}, nonce: {}", n, secret, nonce);
 
-        // We retrieve the list of servers that will be used in the computation.
-        List<Server> servers = publicParameters.getServers();
+        // We generate a polynomial of order t with coefficients in the field.
+        Polynomial polynomial = Polynomial.random(secret, n, publicParameters.getSecurityThreshold(substationID), random);
 
-        // A range of 1 - the number of servers are created to make use that the input to the polynomial is unique
-        // and that the Lagrange Basis Coefficient will be integer.
-        Set<BigInteger> polynomialInput = IntStream.range(1, servers.size() + 1).mapToObj(BigInteger::valueOf).collect(Collectors.toSet());
-        Iterator<BigInteger> iteratorPolyInput = polynomialInput.iterator();
+        // We retrieve the servers that will be used in the computation together with their Lagrange Basis
+        // Coefficients. The coefficients are computed once for every set of servers, not once for every share.
+        ServerSet serverSet = publicParameters.getServerSet();
+        List<Server> servers = serverSet.getServers();
 
         // Here we create a map (dict in python) that relates each server to its share.
         Map<URI, ServerData> shares = new HashMap<>();
-        servers.forEach(server -> {
-            BigInteger number = iteratorPolyInput.next();
-            // Compute the polynomial with a unique value as input.
-            BigInteger share = polynomial.apply(number.intValue());
-            // Multiply it with the Lagrange Coefficient.
-            share = share.multiply(computeLagrangeCoefficient(number, polynomialInput));
+        for (int i = 0; i < servers.size(); i++) {
+            // Compute the polynomial with a unique value as input and multiply it with the Lagrange Coefficient.
+            BigInteger share = polynomial.share(serverSet.getPolynomialInput(i), serverSet.getLagrangeCoefficient(i), shareMode);
             // Store the result in the map.
-            shares.put(server.getUri().resolve(Construction.LINEAR.getEndpoint()), new ServerData(share));
-        });
+            shares.put(servers.get(i).getUri().resolve(Construction.LINEAR.getEndpoint()), new ServerData(share, shareMode));
+        }
 
         // Store the data that is needed later in the construction in an object and return it.
         // - The shares will be sent to the server
@@ -83,92 +126,158 @@ public class LinearSignature {
     public LinearSignatureData partialProof(LinearSignatureData data, BigInteger secret) {
 
         // We retrieve the public information.
-        PublicData publicData = publicParameters.getLinearPublicData(data.getSubstationID(), data.getFid());
+        PublicData publicData = publicParameters.getLinearPublicData(data.getSubstationID(), data.getClientID(), data.getFid());
         log.debug("PublicParameters: {}", publicData);
         BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
-        BigInteger s = new BigInteger(eN.bitLength(), random).mod(eN);
+        BigInteger nonce = data.getNonceData().getNonce();
+        BigInteger h = publicData.getClientH(data.getClientID());
 
-        // Compute the xi,R with nonce and secret
-        BigInteger xR = data.getNonceData().getNonce().add(secret);
+        BigInteger s;
+        BigInteger x;
+        ProofKit kit = proofKits.asMap().remove(List.of(data.getSubstationID(), data.getFid(), data.getClientID()));
+        if (kit != null && kit.isFor(publicData, h, nonce)) {
+            // The root is multiplicative, x = (g1^s * h * g2^nonce)^(1/eN) * (g2^(1/eN))^secret mod NRoof. Both roots
+            // were computed before the reading, only the power with the small secret is left.
+            preparedProofs.incrementAndGet();
+            s = kit.s;
+            x = kit.partialRoot.multiply(kit.g2Root.modPow(secret, publicData.getNRoof())).mod(publicData.getNRoof());
+        } else {
+            s = new BigInteger(eN.bitLength(), random).mod(eN);
+
+            // Compute the xi,R with nonce and secret
+            BigInteger xR = nonce.add(secret);
+
+            // x^(eN) = {g^s * PRODUCT( h[j]^f[j,i] ) * g1^(xR)} mod nRoof
+            // g1, g2 and nRoof are the same for many fids, so the powers of g1 and g2 are precomputed and
+            // computed into one product.
+            BigInteger xeN = MultiExponentiation.modPow(publicData.getG1(), s, eN.bitLength(),
+                    publicData.getG2(), xR, publicData.getN().bitLength() + 1, publicData.getNRoof())
+                    .multiply(h)
+                    .mod(publicData.getNRoof());
+            x = root(publicData, xeN, eN);
+        }
 
-        // x^(eN) = {g^s * PRODUCT( h[j]^f[j,i] ) * g1^(xR)} mod nRoof
-        BigInteger xeN = publicData.getG1().modPow(s, publicData.getNRoof())
-                .multiply(publicData.getH()[data.getClientID()])
-                .multiply(publicData.getG2().modPow(xR, publicData.getNRoof()))
+        // Add the computed value to the data object and return it, now including the partial proof (sigma).
+        data.setVerifierData(publicData.getFidPrime(), s, x);
+        return data;
+    }
+
+    /**
+     * Prepares the partial proofs of the upcoming fids of a client in the background: s, the nonce, the eN-th root
+     * of g1^s * h * g2^nonce and the eN-th root of g2, everything but the part that depends on the secret.
+     * @param firstFid the next fid that will use the Linear Signature construction.
+     * @param stride the distance between the fids that use the construction.
+     */
+    public void prepareProofs(int substationID, int clientID, int firstFid, int stride) {
+        for (int i = 0; i < precompute; i++) {
+            int fid = firstFid + i * stride;
+            if (proofKits.getIfPresent(List.of(substationID, fid, clientID)) != null)
+                continue;
+            precomputer.execute(() -> {
+                try {
+                    prepareProof(substationID, clientID, fid);
+                } catch (RuntimeException e) {
+                    log.debug("Could not prepare the partial proof of fid {}: {}", fid, e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Prepares the partial proof of one fid of a client, unless it is already prepared.
+     */
+    public void prepareProof(int substationID, int clientID, int fid) {
+        List<Integer> key = List.of(substationID, fid, clientID);
+        if (proofKits.getIfPresent(key) != null)
+            return;
+        PublicData publicData = publicParameters.getLinearPublicData(substationID, clientID, fid);
+        BigInteger h = publicData.getClientH(clientID);
+        BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
+        BigInteger s = new BigInteger(eN.bitLength(), random).mod(eN);
+        BigInteger nonce = BigInteger.valueOf(random.nextLong()).mod(publicData.getN());
+        BigInteger partial = MultiExponentiation.modPow(publicData.getG1(), s, eN.bitLength(),
+                publicData.getG2(), nonce, publicData.getN().bitLength() + 1, publicData.getNRoof())
+                .multiply(h)
                 .mod(publicData.getNRoof());
+        proofKits.asMap().putIfAbsent(key, new ProofKit(publicData, h, nonce, s,
+                root(publicData, partial, eN), root(publicData, publicData.getG2(), eN)));
+    }
+
+    /**
+     * @return the number of partial proofs that were completed from a prepared proof kit.
+     */
+    long getPreparedProofs() {
+        return preparedProofs.get();
+    }
 
+    /**
+     * @return the eN-th root of the value modulo NRoof.
+     */
+    private BigInteger root(PublicData publicData, BigInteger value, BigInteger eN) {
+        CrtKey crtKey = crtKey(publicData);
+        if (crtKey != null) {
+            // sk holds the factors of NRoof, so the root is computed modulo each factor and recombined.
+            return crtKey.root(value, eN);
+        }
         // Solve for x, using z as the inverse of eN in mod( totient(NRoof) )
         // (eN)z = 1 mod totient(NRoof) ==> (x^(eN))^z = x mod NRoof.
         BigInteger totientNRoof = publicData.getSk()[0].subtract(BigInteger.ONE).multiply(publicData.getSk()[1].subtract(BigInteger.ONE));
-        BigInteger eNInverse = publicData.getN().multiply(publicData.getFidPrime()).modInverse(totientNRoof);
+        BigInteger eNInverse = eN.modInverse(totientNRoof);
 
         // x = x^(eN)^(eNInverse) mod (NRoof)
-        BigInteger x = xeN.modPow(eNInverse, publicData.getNRoof());
-
-        // Add the computed value to the data object and return it, now including the partial proof (sigma).
-        data.setVerifierData(publicData.getFidPrime(), s, x);
-        return data;
+        return value.modPow(eNInverse, publicData.getNRoof());
     }
 
     /**
-     * This function creates a polynomial that will take an input and return the result.
-     * @param secret This will be the result for input = 0.
-     * @param field The polynomial is computed mod field.
-     * @return A function that can take 1 value as input.
+     * @return the CRT key of NRoof, or null if sk is not the factorization of NRoof.
      */
-    protected Function<Integer, BigInteger> generatePolynomial(BigInteger secret, BigInteger field, int substationID) {
-        // Retrieve the t parameter for the construction.
-        int t = publicParameters.getSecurityThreshold(substationID);
-
-        StringBuilder logString = new StringBuilder("Polynomial used: ").append(secret);
-
-        // We define a list of coefficients, a's.
-        ArrayList<BigInteger> coefficients = new ArrayList<>();
-        for (int i = 1; i <= t; i++) {
-            BigInteger a;
-            do {
-                a = new BigInteger(field.bitLength(), random).mod(field);
-            } while (a.equals(BigInteger.ZERO) || a.compareTo(field) >= 0);
-            logString.append(" + ").append(a).append("x^").append(i);
-            coefficients.add(a);
+    private CrtKey crtKey(PublicData publicData) {
+        CrtKey crtKey = crtKeys.getIfPresent(publicData.getNRoof());
+        if (crtKey == null && CrtKey.isFactorization(publicData.getNRoof(), publicData.getSk())) {
+            crtKey = new CrtKey(publicData.getSk()[0], publicData.getSk()[1]);
+            crtKeys.put(publicData.getNRoof(), crtKey);
         }
-        log.info(logString.toString());
-
-        // Here we define the function that is returned.
-        return (input) -> {
-            // Note that everything here defines the polynomial.
-            BigInteger bigIntInput = BigInteger.valueOf(input);
-            // We begin with the secret as x_i + ...
-            BigInteger res = secret;
-            // That is then continued by ... + a[i] * input^i + ...
-            for (int i = 0; i < coefficients.size(); i++) {
-                BigInteger coefficient = coefficients.get(i);
-                BigInteger polynomial = bigIntInput.pow(i + 1);
-                res = res.add(coefficient.multiply(polynomial));
-            }
-            // Finally, we can return the result.
-            return res;
-        };
+        return crtKey;
     }
 
     /**
-     * In this function a Lagrange Basis Coefficient is computed.
-     * @param currentValue The value for which to compute the Lagrange coefficient.
-     * @param potentialValues All input values to the polynomial.
-     * @return The result of the computation. A single value.
+     * The part of the partial proof of a fid that does not depend on the secret. It is used for one share only.
      */
-    public BigInteger computeLagrangeCoefficient(BigInteger currentValue, Set<BigInteger> potentialValues){
-        // Compute the nominator, the product of all inputs except for the one that is the currentValue.
-        BigInteger nominator = potentialValues.stream()
-                .filter(x -> !x.equals(currentValue))
-                .reduce(BigInteger.ONE, BigInteger::multiply);
-        // Compute the denominator, the product of all inputs minus the current value, except for the input that is the currentValue.
-        BigInteger denominator = potentialValues.stream()
-                .filter(x -> !x.equals(currentValue))
-                .reduce(BigInteger.ONE, (prev, x) -> prev.multiply(x.subtract(currentValue)));
-        log.debug("beta values: {}/{} = {}", nominator, denominator, nominator.divideAndRemainder(denominator));
-        // Return the nominator divided by the denominator.
-        return nominator.divide(denominator);
-    }
+    private static final class ProofKit {
+        private final BigInteger n;
+        private final BigInteger nRoof;
+        private final BigInteger fidPrime;
+        private final BigInteger g1;
+        private final BigInteger g2;
+        private final BigInteger h;
+        private final BigInteger nonce;
+        private final BigInteger s;
+        // The eN-th roots of g1^s * h * g2^nonce and of g2 modulo NRoof.
+        private final BigInteger partialRoot;
+        private final BigInteger g2Root;
+
+        private ProofKit(PublicData publicData, BigInteger h, BigInteger nonce, BigInteger s, BigInteger partialRoot, BigInteger g2Root) {
+            this.n = publicData.getN();
+            this.nRoof = publicData.getNRoof();
+            this.fidPrime = publicData.getFidPrime();
+            this.g1 = publicData.getG1();
+            this.g2 = publicData.getG2();
+            this.h = h;
+            this.nonce = nonce;
+            this.s = s;
+            this.partialRoot = partialRoot;
+            this.g2Root = g2Root;
+        }
 
+        // The kit can only be used with the nonce it was prepared with and with the same public data.
+        private boolean isFor(PublicData publicData, BigInteger h, BigInteger nonce) {
+            return this.nonce.equals(nonce)
+                    && n.equals(publicData.getN())
+                    && nRoof.equals(publicData.getNRoof())
+                    && fidPrime.equals(publicData.getFidPrime())
+                    && g1.equals(publicData.getG1())
+                    && g2.equals(publicData.getG2())
+                    && this.h.equals(h);
+        }
+    }
 }
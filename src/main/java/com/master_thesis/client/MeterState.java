@@ -0,0 +1,49 @@
+package com.master_thesis.client;
+
+import com.master_thesis.client.data.ClientStartupData;
+import com.master_thesis.client.util.Reader;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state of one registered meter: its identifiers, the fid of the next computation and where its readings
+ * come from. Everything else that is needed to share a reading is stateless and shared between the meters.
+ */
+public class MeterState {
+
+    private final int clientID;
+    private final int substationID;
+    private final AtomicInteger fid;
+    private final Reader reader;
+
+    public MeterState(ClientStartupData startupData, Reader reader) {
+        this.clientID = startupData.getClientID();
+        this.substationID = startupData.getSubstationID();
+        this.fid = new AtomicInteger(startupData.getStartFid());
+        this.reader = reader;
+    }
+
+    public int getClientID() {
+        return clientID;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public int getFid() {
+        return fid.get();
+    }
+
+    /**
+     * Moves on to the next fid.
+     * @return the new fid.
+     */
+    public int nextFid() {
+        return fid.incrementAndGet();
+    }
+
+    public Reader getReader() {
+        return reader;
+    }
+}
@@ -0,0 +1,200 @@
+package com.master_thesis.client;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.data.*;
+import com.master_thesis.client.util.HttpAdapter;
+import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.Reader;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shares a reading of a meter with every enabled construction and sends the results. The pipeline holds no
+ * state of its own, everything that belongs to a meter is in its MeterState, so one pipeline serves any
+ * number of meters.
+ */
+@Component
+public class SharePipeline {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(SharePipeline.class);
+    private RSAThreshold rsaThreshold;
+    private HomomorphicHash homomorphicHash;
+    private LinearSignature linearSignature;
+    private DifferentialPrivacy differentialPrivacy;
+    private HttpAdapter httpAdapter;
+    private PublicParameters publicParameters;
+
+    @Autowired
+    public SharePipeline(RSAThreshold rsaThreshold, @Qualifier("hash") HomomorphicHash homomorphicHash, LinearSignature linearSignature, @Qualifier("dp") DifferentialPrivacy differentialPrivacy, HttpAdapter httpAdapter, PublicParameters publicParameters) {
+        this.rsaThreshold = rsaThreshold;
+        this.homomorphicHash = homomorphicHash;
+        this.linearSignature = linearSignature;
+        this.differentialPrivacy = differentialPrivacy;
+        this.httpAdapter = httpAdapter;
+        this.publicParameters = publicParameters;
+    }
+
+    /**
+     * Shares the next reading of the meter, see sendShare.
+     */
+    public CompletableFuture<Integer> readAndSendShare(MeterState meter, Collection<Construction> constructions) {
+        Reader reader = meter.getReader();
+        CompletableFuture<Integer> sent = sendShare(meter, reader.readValue(), constructions);
+        // The shares of a reading from a followed log are on their way, which ends its ingest to send latency.
+        reader.readingSent();
+        return sent;
+    }
+
+    /**
+     * Computes the shares of the secret with every construction, one fid each, and sends them.
+     * The computation is done by the calling thread, the sending is not waited for.
+     * @return a future that completes when everything that was sent for the secret has been acked or has failed,
+     * with the number of constructions whose shares, nonce and proof component were all acked.
+     */
+    public CompletableFuture<Integer> sendShare(MeterState meter, BigInteger secret, Collection<Construction> constructions) {
+        int clientID = meter.getClientID();
+        int substationID = meter.getSubstationID();
+        List<CompletableFuture<Boolean>> delivered = new ArrayList<>();
+        List<CompletableFuture<?>> sent = new ArrayList<>();
+        log.debug("=== Starting new share ===");
+
+        if (constructions.contains(Construction.HASH)) {
+            int fid = meter.getFid();
+            log.debug("# FID: {} # Sending with {}", fid, Construction.HASH);
+
+            // Here we perform the ShareSecret function from the Homomorphic Hash Construction.
+            HomomorphicHashData data = homomorphicHash.shareSecret(secret, substationID);
+            // We add identifiers to allow for multiple computations.
+            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
+
+            // We send the shares to the servers, the nonce data to the trusted party to compute R_n and make
+            // the tau (proof component) publicly available. All of them are sent at the same time.
+            delivered.add(send(meter, fid, data.getServerData(), data.getNonceData(), data.getVerifierData()));
+
+            // Prepare for the next computation.
+            sent.add(newFid(meter));
+        }
+
+        if (constructions.contains(Construction.RSA)) {
+            int fid = meter.getFid();
+            log.debug("# FID: {} # Sending with {}", fid, Construction.RSA);
+            if (hasRsaPrimes(substationID)) {
+                // Here we perform the ShareSecret function from the Threshold Signature Construction.
+                RSAThresholdData data = rsaThreshold.shareSecret(secret, substationID);
+
+                // We add identifiers to allow for multiple computations.
+                data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
+
+                // We send the shares to the servers, the nonce data to the trusted party to compute R_n and make
+                // the tau (proof component) publicly available. All of them are sent at the same time.
+                delivered.add(send(meter, fid, data.getServerData(), data.getNonceData(), data.getVerifierData()));
+            }
+
+            // Prepare for the next computation. The fid is used up even when nothing was sent with it, so every
+            // reading uses one fid per construction, as the Linear Signature prefetch below expects.
+            sent.add(newFid(meter));
+        }
+
+        if (constructions.contains(Construction.LINEAR)) {
+            int fid = meter.getFid();
+            log.debug("# FID: {} # Sending with {}", fid, Construction.LINEAR);
+            long start = System.nanoTime();
+
+            // Here we perform the ShareSecret function from the Linear Signature Construction.
+            LinearSignatureData data = linearSignature.shareSecret(secret, fid, substationID, clientID);
+            // We add identifiers to allow for multiple computations.
+            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
+
+            // Using the result of the share secret function we compute the partial proof function from Linear Signature Construction
+            // The data variable is modified in the function and "replaced" when the partial proof function is completed.
+            data = linearSignature.partialProof(data, secret);
+            // The public data of the fid is not needed anymore.
+            publicParameters.releaseLinearPublicData(substationID, clientID, fid);
+            log.debug("# FID: {} # {} share and proof computed in {} ms", fid, Construction.LINEAR, (System.nanoTime() - start) / 1e6);
+            // We send the shares to the servers, the nonce data to the trusted party to compute R_n and make
+            // the proof component (sigma) publicly available. All of them are sent at the same time.
+            delivered.add(send(meter, fid, data.getServerData(), data.getNonceData(), data.getVerifierData()));
+            // While this is sent, the public data of the next readings is fetched. Every reading uses one fid
+            // per construction, so the next Linear Signature fid is that many fids ahead.
+            // The parts of their partial proofs that do not depend on the secret are computed in the meantime too.
+            publicParameters.prefetchLinearPublicData(substationID, clientID, fid + constructions.size(), constructions.size());
+            linearSignature.prepareProofs(substationID, clientID, fid + constructions.size(), constructions.size());
+
+            // Prepare for the next computation.
+            sent.add(newFid(meter));
+        }
+
+        if (constructions.contains(Construction.DP)) {
+            int fid = meter.getFid();
+            log.debug("# FID: {} # Sending with {}", fid, Construction.DP);
+
+            // Here we perform the ShareSecret function from the Homomorphic Hash Construction.
+            DifferentialPrivacyData data = differentialPrivacy.shareSecret(secret, substationID);
+            // We add identifiers to allow for multiple computations.
+            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
+
+            // We send the shares to the servers, the nonce data to the trusted party to compute R_n and make
+            // the tau (proof component) publicly available. All of them are sent at the same time.
+            delivered.add(send(meter, fid, data.getServerData(), data.getNonceData(), data.getVerifierData()));
+
+            // Prepare for the next computation.
+            sent.add(newFid(meter));
+        }
+
+        log.debug("=== Shares computed. Next fid {} ===", meter.getFid());
+        return count(delivered, sent);
+    }
+
+    /**
+     * Sends the shares, the nonce and the proof component of a fid concurrently.
+     * The destinations that could not be reached are reported.
+     * @return a future that completes with true if every request of the fid was acked.
+     */
+    private CompletableFuture<Boolean> send(MeterState meter, int fid, Map<URI, ? extends ComputationData> serverData, Object nonceData, ComputationData verifierData) {
+        return httpAdapter.sendAll(serverData, nonceData, verifierData).thenApply(report -> {
+            report.getServerFailures().forEach((uri, e) ->
+                    log.error("# Client: {} # FID: {} # Could not send to {}: {}", meter.getClientID(), fid, uri, e.getMessage()));
+            if (report.getNonceFailure() != null)
+                log.error("# Client: {} # FID: {} # Could not send the nonce: {}", meter.getClientID(), fid, report.getNonceFailure().getMessage());
+            if (report.getVerifierFailure() != null)
+                log.error("# Client: {} # FID: {} # Could not send the proof component: {}", meter.getClientID(), fid, report.getVerifierFailure().getMessage());
+            return report.isDelivered();
+        });
+    }
+
+    // The coordinator has no RSA primes for a substation that is not set up for the construction.
+    private boolean hasRsaPrimes(int substationID) {
+        try {
+            publicParameters.getRsaN(substationID);
+            return true;
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("RSA primes")) {
+                log.error("Could not run RSA construction with these settings.");
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<?> newFid(MeterState meter) {
+        return httpAdapter.updateFidAsync(meter.getSubstationID(), meter.getClientID(), meter.nextFid());
+    }
+
+    // Waits for the fid updates as well and counts the constructions that were delivered.
+    private static CompletableFuture<Integer> count(List<CompletableFuture<Boolean>> delivered, List<CompletableFuture<?>> sent) {
+        List<CompletableFuture<?>> all = new ArrayList<>(sent);
+        all.addAll(delivered);
+        return CompletableFuture.allOf(all.toArray(CompletableFuture[]::new))
+                .thenApply(done -> (int) delivered.stream().filter(CompletableFuture::join).count());
+    }
+}
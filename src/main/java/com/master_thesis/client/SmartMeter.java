@@ -2,18 +2,18 @@ package com.master_thesis.client;
 
 import ch.qos.logback.classic.Logger;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.master_thesis.client.data.*;
+import com.master_thesis.client.data.Construction;
+import com.master_thesis.client.simulation.MeterSimulation;
 import com.master_thesis.client.util.HttpAdapter;
+import com.master_thesis.client.util.PublicParameters;
 import com.master_thesis.client.util.Reader;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import java.math.BigInteger;
-import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,26 +22,23 @@ public class SmartMeter {
 
     private static final Logger log = (Logger) LoggerFactory.getLogger(SmartMeter.class);
     private Reader reader;
-    private int fid;
-    private int clientID;
-    private RSAThreshold rsaThreshold;
-    private HomomorphicHash homomorphicHash;
-    private LinearSignature linearSignature;
-    private DifferentialPrivacy differentialPrivacy;
+    private MeterState meter;
+    private SharePipeline sharePipeline;
+    private MeterSimulation meterSimulation;
     private HttpAdapter httpAdapter;
+    private PublicParameters publicParameters;
     private Scanner scanner;
-    private int substationID;
+    private List<CompletableFuture<Integer>> inFlight = new ArrayList<>();
     private Collection<Construction> enabledConstructions = Stream.of(Construction.LINEAR).collect(Collectors.toSet());
 
 
     @Autowired
-    public SmartMeter(Reader reader, RSAThreshold rsaThreshold, @Qualifier("hash") HomomorphicHash homomorphicHash, LinearSignature linearSignature, @Qualifier("dp") DifferentialPrivacy differentialPrivacy, HttpAdapter httpAdapter) {
+    public SmartMeter(Reader reader, SharePipeline sharePipeline, MeterSimulation meterSimulation, HttpAdapter httpAdapter, PublicParameters publicParameters) {
         this.reader = reader;
-        this.rsaThreshold = rsaThreshold;
-        this.homomorphicHash = homomorphicHash;
-        this.linearSignature = linearSignature;
-        this.differentialPrivacy = differentialPrivacy;
+        this.sharePipeline = sharePipeline;
+        this.meterSimulation = meterSimulation;
         this.httpAdapter = httpAdapter;
+        this.publicParameters = publicParameters;
 
         register();
 
@@ -58,7 +55,7 @@ public class SmartMeter {
         boolean running = true;
         while (running) {
 
-            System.out.printf("Client %s: [q]uit. [l]ist clients. [r]egister. \n          [d]elete all. [t]oggle construction. [s]end shares. \n          [secret] change which secret to send. [run many] to run many.\n          [1][2][3][4] to run a specific construction\n", clientID);
+            System.out.printf("Client %s: [q]uit. [l]ist clients. [r]egister. \n          [d]elete all. [t]oggle construction. [s]end shares. \n          [secret] change which secret to send. [run many] to run many.\n          [1][2][3][4] to run a specific construction. [batch] toggle batching.\n          [sim]ulate many meters.\n", meter.getClientID());
 
             String input = scanner.nextLine();
             log.debug("input: {}", input);
@@ -80,6 +77,7 @@ public class SmartMeter {
                     break;
                 case "s":
                     readAndSendShare();
+                    awaitSent();
                     break;
                 case "secret":
                     reader.setSecretMode(scanner);
@@ -87,6 +85,13 @@ public class SmartMeter {
                 case "runmany":
                     runMany();
                     break;
+                case "batch":
+                    httpAdapter.setBatching(!httpAdapter.isBatching());
+                    System.out.printf("Client %s: Batching %s\n", meter.getClientID(), httpAdapter.isBatching() ? "enabled" : "disabled");
+                    break;
+                case "sim":
+                    simulate();
+                    break;
                 default:
                     if ("1234".contains(input)) {
                         runSingleConstruction(Integer.parseInt(input));
@@ -106,6 +111,7 @@ public class SmartMeter {
         enabledConstructions.clear();
         enabledConstructions.add(constructionMap.get(construction));
         readAndSendShare();
+        awaitSent();
     }
 
     private void toggleConstruction() {
@@ -116,8 +122,8 @@ public class SmartMeter {
                 "4", Construction.DP);
         String input;
         do {
-            System.out.printf("Client %s: Active: %s \n", clientID, enabledConstructions);
-            System.out.printf("Client %s: Press to toggle [1 Hash] [2 RSA] [3 Linear] [4 DP] or [b]ack ", clientID);
+            System.out.printf("Client %s: Active: %s \n", meter.getClientID(), enabledConstructions);
+            System.out.printf("Client %s: Press to toggle [1 Hash] [2 RSA] [3 Linear] [4 DP] or [b]ack ", meter.getClientID());
             input = scanner.nextLine();
             if ("b".equals(input)) return;
         } while (!constructionMap.containsKey(input));
@@ -130,140 +136,67 @@ public class SmartMeter {
     }
 
     private void register() {
-        ClientStartupData jsonNode = httpAdapter.registerClient();
-        this.clientID = jsonNode.getClientID();
-        this.substationID = jsonNode.getSubstationID();
-        this.fid = jsonNode.getStartFid();
+        meter = new MeterState(httpAdapter.registerClient(), reader);
+        // A new registration can come with new setup values, they are fetched again on the next share.
+        publicParameters.invalidate(meter.getSubstationID());
+        publicParameters.invalidateServers();
+        try {
+            httpAdapter.prewarm(publicParameters.getServers());
+        } catch (Exception e) {
+            log.warn("Could not pre-warm the server connections: {}", e.getMessage());
+        }
     }
 
+    /**
+     * Shares the next reading with the enabled constructions. The shares are computed before returning.
+     * Sending them is waited for, except in batching mode where they are awaited in awaitSent.
+     */
     private void readAndSendShare() {
-        BigInteger secret = reader.readValue();
-        log.info("=== Starting new share ===");
-
-        if (enabledConstructions.contains(Construction.HASH)) {
-            log.info("# FID: {} # Sending with {}", fid, Construction.HASH);
-
-            // Here we perform the ShareSecret function from the Homomorphic Hash Construction.
-            HomomorphicHashData data = homomorphicHash.shareSecret(secret, substationID);
-            // We add identifiers to allow for multiple computations.
-            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
-
-            // We retrieve all shares going to the servers and send them.
-            Map<URI, HomomorphicHashData.ServerData> serverDataMap = data.getServerData();
-            serverDataMap.forEach(httpAdapter::sendServerShare);
-
-            // Get nonce data to send to the trusted party to compute R_n.
-            httpAdapter.sendNonce(data.getNonceData());
-
-            // Get the tau (proof component) and make it publicly available.
-            httpAdapter.sendProofComponent(data.getVerifierData());
-
-            // Prepare for the next computation.
-            newFid();
-        }
-
-        if (enabledConstructions.contains(Construction.RSA)) {
-            log.info("# FID: {} # Sending with {}", fid, Construction.RSA);
-            try {
-                httpAdapter.getRSASecretPrimes(substationID);
-            } catch (RuntimeException e) {
-                if (e.getMessage().contains("RSA primes")) {
-                    System.out.println("Could not run RSA construction with these settings.");
-                    return;
-                } else {
-                    throw e;
-                }
-            }
-
-            // Here we perform the ShareSecret function from the Threshold Signature Construction.
-            RSAThresholdData data = rsaThreshold.shareSecret(secret, substationID);
-
-            // We add identifiers to allow for multiple computations.
-            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
-
-            // We retrieve all shares going to the servers and send them.
-            Map<URI, RSAThresholdData.ServerData> shareMap = data.getServerData();
-            shareMap.forEach(httpAdapter::sendServerShare);
-
-            // Get nonce data to send to the trusted party to compute R_n.
-            httpAdapter.sendNonce(data.getNonceData());
-
-            // Get the tau (proof component) and make it publicly available.
-            httpAdapter.sendProofComponent(data.getVerifierData());
-
-            // Prepare for the next computation.
-            newFid();
-        }
-
-        if (enabledConstructions.contains(Construction.LINEAR)) {
-            log.info("# FID: {} # Sending with {}", fid, Construction.LINEAR);
-
-            // Here we perform the ShareSecret function from the Linear Signature Construction.
-            LinearSignatureData data = linearSignature.shareSecret(secret, fid, substationID);
-            // We add identifiers to allow for multiple computations.
-            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
-
-            // Using the result of the share secret function we compute the partial proof function from Linear Signature Construction
-            // The data variable is modified in the function and "replaced" when the partial proof function is completed.
-            data = linearSignature.partialProof(data, secret);
-            // We retrieve all shares going to the servers and send them.
-            Map<URI, LinearSignatureData.ServerData> serverDataMap = data.getServerData();
-            serverDataMap.forEach(httpAdapter::sendServerShare);
-
-            // Get nonce data to send to the trusted party to compute R_n.
-            httpAdapter.sendNonce(data.getNonceData());
-
-            // Get the proof component (sigma) and make it publicly available.
-            httpAdapter.sendProofComponent(data.getVerifierData());
-
-            // Prepare for the next computation.
-            newFid();
-        }
-
-        if (enabledConstructions.contains(Construction.DP)) {
-            log.info("# FID: {} # Sending with {}", fid, Construction.DP);
-
-            // Here we perform the ShareSecret function from the Homomorphic Hash Construction.
-            DifferentialPrivacyData data = differentialPrivacy.shareSecret(secret, substationID);
-            // We add identifiers to allow for multiple computations.
-            data.setFid(fid).setClientID(clientID).setSubstationID(substationID);
-
-            // We retrieve all shares going to the servers and send them.
-            Map<URI, DifferentialPrivacyData.ServerData> serverDataMap = data.getServerData();
-            serverDataMap.forEach(httpAdapter::sendServerShare);
-
-            // Get nonce data to send to the trusted party to compute R_n.
-            httpAdapter.sendNonce(data.getNonceData());
-
-            // Get the tau (proof component) and make it publicly available.
-            httpAdapter.sendProofComponent(data.getVerifierData());
-
-            // Prepare for the next computation.
-            newFid();
+        CompletableFuture<Integer> sent = sharePipeline.readAndSendShare(meter, enabledConstructions);
+        if (httpAdapter.isBatching()) {
+            inFlight.add(sent);
+        } else {
+            sent.join();
         }
+        log.info("=== Shares sent. Next fid {} ===", meter.getFid());
+    }
 
-        log.info("=== Shares sent. Next fid {} ===", fid);
-
+    /**
+     * Sends the batches that are still waiting and blocks until everything that has been sent is acked.
+     */
+    private void awaitSent() {
+        httpAdapter.flush();
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        inFlight.clear();
     }
 
     private void runMany() {
         System.out.println("How many? ");
         int runs = scanner.nextInt();
         scanner.nextLine();
+        long requests = httpAdapter.getRequestCount();
         for (int i = 0; i < runs; i++) {
             readAndSendShare();
         }
+        awaitSent();
+        log.info("{} runs sent with {} requests", runs, httpAdapter.getRequestCount() - requests);
+    }
+
+    private void simulate() {
+        System.out.print("How many meters? ");
+        int meters = scanner.nextInt();
+        System.out.print("How many readings per meter? ");
+        int readings = scanner.nextInt();
+        System.out.print("How many threads? ");
+        int threads = scanner.nextInt();
+        scanner.nextLine();
+        System.out.println(meterSimulation.run(reader, meters, readings, threads, enabledConstructions));
     }
 
     private List<Integer> listClientIDs() {
-        JsonNode clients = httpAdapter.listClients(substationID, fid);
+        JsonNode clients = httpAdapter.listClients(meter.getSubstationID(), meter.getFid());
         List<Integer> retList = new LinkedList<>();
         clients.elements().forEachRemaining(id -> retList.add(id.asInt()));
         return retList;
     }
-
-    private void newFid() {
-        fid++;
-        httpAdapter.updateFid(substationID, clientID, fid);
-    }
 }
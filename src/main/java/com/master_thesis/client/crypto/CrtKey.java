@@ -0,0 +1,50 @@
+package com.master_thesis.client.crypto;
+
+import java.math.BigInteger;
+
+/**
+ * A modulus together with its two prime factors. Roots modulo the modulus are computed with the Chinese
+ * Remainder Theorem: one exponentiation modulo each half size prime, recombined with Garner's formula, is
+ * several times cheaper than one exponentiation modulo the full modulus.
+ */
+public class CrtKey {
+
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger pMinusOne;
+    private final BigInteger qMinusOne;
+    private final BigInteger qInverse;
+
+    public CrtKey(BigInteger p, BigInteger q) {
+        this.p = p;
+        this.q = q;
+        this.pMinusOne = p.subtract(BigInteger.ONE);
+        this.qMinusOne = q.subtract(BigInteger.ONE);
+        this.qInverse = q.modInverse(p);
+    }
+
+    /**
+     * @return true if the factors are two distinct numbers whose product is the modulus.
+     */
+    public static boolean isFactorization(BigInteger modulus, BigInteger[] factors) {
+        return factors != null && factors.length >= 2 && factors[0] != null && factors[1] != null
+                && !factors[0].equals(factors[1]) && factors[0].multiply(factors[1]).equals(modulus);
+    }
+
+    /**
+     * Computes the e-th root of the value, that is x = value^(1/e) mod pq.
+     * The exponent has to be invertible modulo both p-1 and q-1.
+     */
+    public BigInteger root(BigInteger value, BigInteger e) {
+        // The inverse of e modulo the totient reduced modulo p-1 and q-1 is the inverse of e modulo p-1 and q-1.
+        BigInteger xp = value.mod(p).modPow(e.modInverse(pMinusOne), p);
+        BigInteger xq = value.mod(q).modPow(e.modInverse(qMinusOne), q);
+        // Garner's recombination: x = xq + q * ((xp - xq) * q^-1 mod p).
+        BigInteger h = xp.subtract(xq).multiply(qInverse).mod(p);
+        return xq.add(h.multiply(q));
+    }
+
+    public BigInteger getModulus() {
+        return p.multiply(q);
+    }
+}
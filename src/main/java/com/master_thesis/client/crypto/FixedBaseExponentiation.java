@@ -0,0 +1,159 @@
+package com.master_thesis.client.crypto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exponentiation with a base and a modulus that are known in advance. The exponent is split into windows of w
+ * bits and for every window position i the table holds base^(d * 2^(w*i)) mod modulus for every digit d, so
+ * base^e is the product of one table entry per window and needs no squarings.
+ * <p>
+ * The tables are built the first time a base is used and are shared by everything in the JVM. They are kept
+ * in a cache that is bounded by the size of the tables, the least recently used tables are dropped first.
+ */
+public class FixedBaseExponentiation {
+
+    private static final long MAX_TABLE_BYTES = 64L << 20;
+    // The widest window that is used, every extra bit doubles the time it takes to build the table.
+    private static final int MAX_WINDOW = 12;
+    private static final Cache<List<Object>, FixedBaseExponentiation> tables = CacheBuilder.newBuilder()
+            // One segment, such that the whole bound is available to a single large table.
+            .concurrencyLevel(1)
+            .maximumWeight(MAX_TABLE_BYTES)
+            .weigher((List<Object> key, FixedBaseExponentiation table) -> (int) Math.min(Integer.MAX_VALUE, table.getSizeInBytes()))
+            .build();
+
+    private final BigInteger base;
+    private final BigInteger modulus;
+    private final int window;
+    private final int exponentBits;
+    private final int reduceBits;
+    private final BigInteger[][] table;
+
+    public FixedBaseExponentiation(BigInteger base, BigInteger modulus, int exponentBits, int window) {
+        this.base = base;
+        this.modulus = modulus;
+        this.window = window;
+        this.exponentBits = exponentBits;
+        // For small moduli a few products are multiplied before they are reduced, one division of a longer
+        // number is cheaper than several short ones. For large moduli the longer multiplications cost more.
+        this.reduceBits = modulus.bitLength() <= 512 ? 4 * modulus.bitLength() : modulus.bitLength();
+        int windows = (exponentBits + window - 1) / window;
+        int digits = 1 << window;
+        this.table = new BigInteger[windows][digits];
+        BigInteger windowBase = base.mod(modulus);
+        for (int i = 0; i < windows; i++) {
+            table[i][0] = BigInteger.ONE;
+            for (int d = 1; d < digits; d++) {
+                table[i][d] = table[i][d - 1].multiply(windowBase).mod(modulus);
+            }
+            // base^(2^(w*(i+1))) is the base of the next window.
+            windowBase = table[i][digits - 1].multiply(windowBase).mod(modulus);
+        }
+    }
+
+    /**
+     * Computes base^exponent mod modulus with the shared table of the base.
+     * @param exponentBits the largest exponent that is expected for this base, larger exponents use modPow.
+     */
+    public static BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger modulus, int exponentBits) {
+        FixedBaseExponentiation table = forBase(base, modulus, exponentBits);
+        if (table == null)
+            return base.modPow(exponent, modulus);
+        return table.pow(exponent);
+    }
+
+    /**
+     * @return the shared table of the base, built if it is not cached, or null if no table fits in the cache.
+     */
+    static FixedBaseExponentiation forBase(BigInteger base, BigInteger modulus, int exponentBits) {
+        int window = windowFor(modulus, exponentBits);
+        if (window == 0)
+            return null;
+        try {
+            return tables.get(List.of(base, modulus, exponentBits),
+                    () -> new FixedBaseExponentiation(base, modulus, exponentBits, window));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A wider window means fewer multiplications but a table that is exponentially larger. The widest window
+     * whose table fits in an eighth of the cache is used.
+     * @return the window in bits, or 0 if not even a small table fits.
+     */
+    static int windowFor(BigInteger modulus, int exponentBits) {
+        for (int window = MAX_WINDOW; window >= 4; window--) {
+            if (sizeInBytes(modulus, exponentBits, window) <= MAX_TABLE_BYTES / 8)
+                return window;
+        }
+        return 0;
+    }
+
+    /**
+     * @return base^exponent mod modulus. Exponents that are negative or longer than the table fall back to modPow.
+     */
+    public BigInteger pow(BigInteger exponent) {
+        return accumulate(BigInteger.ONE, exponent).mod(modulus);
+    }
+
+    /**
+     * Multiplies the product with base^exponent. The result is congruent to the product times the power, but it
+     * is only reduced as far as the lazy reduction needs, so that several powers can be multiplied into one
+     * product before the last reduction.
+     */
+    BigInteger accumulate(BigInteger product, BigInteger exponent) {
+        if (exponent.signum() < 0 || exponent.bitLength() > exponentBits)
+            return product.multiply(base.modPow(exponent, modulus));
+        byte[] bytes = exponent.toByteArray();
+        BigInteger res = product;
+        for (int i = 0, bit = 0; bit < exponent.bitLength(); i++, bit += window) {
+            int digit = digit(bytes, bit);
+            if (digit == 0)
+                continue;
+            res = res.multiply(table[i][digit]);
+            if (res.bitLength() > reduceBits)
+                res = res.mod(modulus);
+        }
+        return res;
+    }
+
+    // Reads the window bits starting at the bit, from the big-endian bytes of the exponent.
+    private int digit(byte[] bytes, int bit) {
+        int digit = 0;
+        int first = bit >>> 3;
+        for (int k = 0, shift = -(bit & 7); shift < window; k++, shift += 8) {
+            int index = bytes.length - 1 - first - k;
+            int b = index >= 0 ? bytes[index] & 0xff : 0;
+            digit |= shift >= 0 ? b << shift : b >>> -shift;
+        }
+        return digit & ((1 << window) - 1);
+    }
+
+    /**
+     * @return the approximate size of the table in bytes.
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes(modulus, exponentBits, window);
+    }
+
+    private static long sizeInBytes(BigInteger modulus, int exponentBits, int window) {
+        long windows = (exponentBits + window - 1) / window;
+        // Every entry is a BigInteger below the modulus, with the object and array headers.
+        return windows * (1L << window) * (modulus.bitLength() / 8 + 40);
+    }
+
+    public BigInteger getBase() {
+        return base;
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+}
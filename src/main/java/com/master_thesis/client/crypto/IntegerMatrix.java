@@ -0,0 +1,224 @@
+package com.master_thesis.client.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An immutable matrix of integers. Rank and determinant are computed exactly with fraction-free (Bareiss)
+ * elimination: every division in the elimination is exact, so no intermediate value is a fraction and the
+ * values never grow past the size of a minor of the matrix.
+ */
+public class IntegerMatrix {
+
+    private final BigInteger[][] values;
+    private final int rows;
+    private final int columns;
+    // The determinant of the first columns x columns rows, computed once.
+    private BigInteger leadingDeterminant;
+
+    public IntegerMatrix(BigInteger[][] values) {
+        this.rows = values.length;
+        this.columns = rows == 0 ? 0 : values[0].length;
+        this.values = new BigInteger[rows][];
+        for (int row = 0; row < rows; row++) {
+            this.values[row] = values[row].clone();
+        }
+    }
+
+    /**
+     * Draws a matrix with entries in [0, modulus) whose first columns x columns rows are invertible modulo the
+     * modulus, and therefore have a non-zero determinant and full rank, in a single pass.
+     * The leading block is the product L * U modulo the modulus of a random unit lower triangular L and a random
+     * upper triangular U with a non-zero diagonal, so its determinant modulo the modulus is the product of the
+     * diagonal of U. The remaining rows are uniform, any rows below an invertible block keep the rank full.
+     *
+     * @param modulus a prime, such that a product of non-zero diagonal values is non-zero.
+     */
+    public static IntegerMatrix randomFullRank(int rows, int columns, BigInteger modulus, Random random) {
+        if (rows < columns)
+            throw new IllegalArgumentException("A " + rows + "x" + columns + " matrix can not have full column rank");
+        BigInteger[][] lower = new BigInteger[columns][columns];
+        BigInteger[][] upper = new BigInteger[columns][columns];
+        for (int row = 0; row < columns; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (row > column) {
+                    lower[row][column] = randomBelow(modulus, random);
+                    upper[row][column] = BigInteger.ZERO;
+                } else if (row == column) {
+                    lower[row][column] = BigInteger.ONE;
+                    upper[row][column] = randomBelow(modulus.subtract(BigInteger.ONE), random).add(BigInteger.ONE);
+                } else {
+                    lower[row][column] = BigInteger.ZERO;
+                    upper[row][column] = randomBelow(modulus, random);
+                }
+            }
+        }
+        BigInteger[][] values = new BigInteger[rows][columns];
+        for (int row = 0; row < columns; row++) {
+            for (int column = 0; column < columns; column++) {
+                BigInteger sum = BigInteger.ZERO;
+                // L is zero right of the diagonal and U is zero below it.
+                for (int k = 0; k <= Math.min(row, column); k++) {
+                    sum = sum.add(lower[row][k].multiply(upper[k][column]));
+                }
+                values[row][column] = sum.mod(modulus);
+            }
+        }
+        for (int row = columns; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                values[row][column] = randomBelow(modulus, random);
+            }
+        }
+        return new IntegerMatrix(values);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public BigInteger get(int row, int column) {
+        return values[row][column];
+    }
+
+    /**
+     * @return the rows from, inclusive, to to, exclusive.
+     */
+    public IntegerMatrix rows(int from, int to) {
+        if (from < 0 || to > rows || from > to)
+            throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " of a matrix with " + rows + " rows");
+        return new IntegerMatrix(Arrays.copyOfRange(values, from, to));
+    }
+
+    public int rank() {
+        return eliminate(copy()).rank;
+    }
+
+    /**
+     * @return the determinant of a square matrix.
+     */
+    public BigInteger determinant() {
+        if (rows != columns)
+            throw new IllegalStateException("The determinant of a " + rows + "x" + columns + " matrix is not defined");
+        if (rows == 0)
+            return BigInteger.ONE;
+        Elimination elimination = eliminate(copy());
+        if (elimination.rank < rows)
+            return BigInteger.ZERO;
+        return elimination.sign < 0 ? elimination.matrix[rows - 1][columns - 1].negate() : elimination.matrix[rows - 1][columns - 1];
+    }
+
+    /**
+     * @return the determinant of the square matrix made of the first rows, as many as there are columns.
+     */
+    public BigInteger leadingDeterminant() {
+        if (leadingDeterminant == null)
+            leadingDeterminant = rows(0, columns).determinant();
+        return leadingDeterminant;
+    }
+
+    /**
+     * @return the product of this matrix and the column vector.
+     */
+    public BigInteger[] multiply(BigInteger[] vector) {
+        if (vector.length != columns)
+            throw new IllegalArgumentException("A " + rows + "x" + columns + " matrix can not be multiplied with a vector of length " + vector.length);
+        BigInteger[] product = new BigInteger[rows];
+        for (int row = 0; row < rows; row++) {
+            BigInteger sum = BigInteger.ZERO;
+            for (int column = 0; column < columns; column++) {
+                sum = sum.add(values[row][column].multiply(vector[column]));
+            }
+            product[row] = sum;
+        }
+        return product;
+    }
+
+    /**
+     * @return the values as doubles, large values lose precision.
+     */
+    public double[][] toDoubleArray() {
+        double[][] doubles = new double[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                doubles[row][column] = values[row][column].doubleValue();
+            }
+        }
+        return doubles;
+    }
+
+    public BigInteger[][] toArray() {
+        return copy();
+    }
+
+    private static BigInteger randomBelow(BigInteger bound, Random random) {
+        BigInteger value;
+        do {
+            value = new BigInteger(bound.bitLength(), random);
+        } while (value.compareTo(bound) >= 0);
+        return value;
+    }
+
+    private BigInteger[][] copy() {
+        BigInteger[][] copy = new BigInteger[rows][];
+        for (int row = 0; row < rows; row++) {
+            copy[row] = values[row].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Bareiss elimination to row echelon form. After a pivot in row k every entry below it is replaced with
+     * (pivot * entry - below * right) / previous pivot, which is a minor of the matrix and therefore an integer.
+     */
+    private static Elimination eliminate(BigInteger[][] matrix) {
+        int rows = matrix.length;
+        int columns = rows == 0 ? 0 : matrix[0].length;
+        BigInteger previous = BigInteger.ONE;
+        int rank = 0;
+        int sign = 1;
+        for (int column = 0; column < columns && rank < rows; column++) {
+            int pivot = rank;
+            while (pivot < rows && matrix[pivot][column].signum() == 0) {
+                pivot++;
+            }
+            if (pivot == rows)
+                continue;
+            if (pivot != rank) {
+                BigInteger[] swap = matrix[pivot];
+                matrix[pivot] = matrix[rank];
+                matrix[rank] = swap;
+                sign = -sign;
+            }
+            BigInteger pivotValue = matrix[rank][column];
+            for (int row = rank + 1; row < rows; row++) {
+                BigInteger below = matrix[row][column];
+                for (int right = column + 1; right < columns; right++) {
+                    matrix[row][right] = pivotValue.multiply(matrix[row][right])
+                            .subtract(below.multiply(matrix[rank][right]))
+                            .divide(previous);
+                }
+                matrix[row][column] = BigInteger.ZERO;
+            }
+            previous = pivotValue;
+            rank++;
+        }
+        return new Elimination(matrix, rank, sign);
+    }
+
+    private static class Elimination {
+        private final BigInteger[][] matrix;
+        private final int rank;
+        private final int sign;
+
+        private Elimination(BigInteger[][] matrix, int rank, int sign) {
+            this.matrix = matrix;
+            this.rank = rank;
+            this.sign = sign;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.master_thesis.client.crypto;
+
+import java.math.BigInteger;
+
+/**
+ * Computes products of two powers, a^x * b^y mod n, as one computation. For bases that are known in advance the
+ * fixed-base tables of both bases are walked into the same product, which is only reduced when it has grown
+ * past the lazy reduction bound, so both powers share the reductions and need no squarings.
+ * <p>
+ * Straus' (Shamir's) trick, reading both exponents together and sharing the squarings, is slower on this JVM:
+ * the squarings and reductions of BigInteger are several times slower than the Montgomery multiplications
+ * modPow uses internally, see MultiExponentiationBenchmark. Bases without a table therefore use two calls to
+ * modPow.
+ */
+public class MultiExponentiation {
+
+    private MultiExponentiation() {
+    }
+
+    /**
+     * @param aBits the largest exponent that is expected for a.
+     * @param bBits the largest exponent that is expected for b.
+     * @return a^x * b^y mod n.
+     */
+    public static BigInteger modPow(BigInteger a, BigInteger x, int aBits, BigInteger b, BigInteger y, int bBits, BigInteger n) {
+        FixedBaseExponentiation aTable = FixedBaseExponentiation.forBase(a, n, aBits);
+        FixedBaseExponentiation bTable = FixedBaseExponentiation.forBase(b, n, bBits);
+        if (aTable == null || bTable == null)
+            return a.modPow(x, n).multiply(b.modPow(y, n)).mod(n);
+        return aTable.accumulate(bTable.accumulate(BigInteger.ONE, y), x).mod(n);
+    }
+}
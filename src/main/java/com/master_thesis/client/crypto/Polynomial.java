@@ -0,0 +1,105 @@
+package com.master_thesis.client.crypto;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.data.ShareMode;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * A polynomial of order t with the secret as constant term and random coefficients in the field,
+ * f(x) = secret + a[1]x + ... + a[t]x^t. It is used by all constructions to split a secret into shares.
+ */
+public class Polynomial {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(Polynomial.class);
+    private final BigInteger secret;
+    private final BigInteger field;
+    // coefficients[i] is the coefficient of x^(i+1).
+    private final BigInteger[] coefficients;
+
+    public Polynomial(BigInteger secret, BigInteger field, BigInteger[] coefficients) {
+        this.secret = secret;
+        this.field = field;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Creates a polynomial with t random coefficients, each a non-zero element of the field.
+     * @param secret This will be the result for input = 0.
+     * @param field The coefficients are elements of this field.
+     */
+    public static Polynomial random(BigInteger secret, BigInteger field, int t, Random random) {
+        BigInteger[] coefficients = new BigInteger[t];
+        for (int i = 0; i < t; i++) {
+            BigInteger a;
+            do {
+                a = new BigInteger(field.bitLength(), random).mod(field);
+            } while (a.equals(BigInteger.ZERO));
+            coefficients[i] = a;
+        }
+        Polynomial polynomial = new Polynomial(secret, field, coefficients);
+        log.debug("Polynomial used: {}", polynomial);
+        return polynomial;
+    }
+
+    /**
+     * Evaluates the polynomial over the integers with Horner's rule, ((a[t]x + a[t-1])x + ... + a[1])x + secret.
+     */
+    public BigInteger evaluate(long input) {
+        BigInteger x = BigInteger.valueOf(input);
+        BigInteger res = BigInteger.ZERO;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            res = res.add(coefficients[i]).multiply(x);
+        }
+        return res.add(secret);
+    }
+
+    /**
+     * Evaluates the polynomial with Horner's rule and reduces modulo the field in every step, so no intermediate
+     * value is larger than the field times the input.
+     */
+    public BigInteger evaluateMod(long input) {
+        BigInteger x = BigInteger.valueOf(input);
+        BigInteger res = BigInteger.ZERO;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            res = res.add(coefficients[i]).multiply(x).mod(field);
+        }
+        return res.add(secret).mod(field);
+    }
+
+    /**
+     * Computes the share of a server: the polynomial evaluated at the input of the server multiplied with its
+     * Lagrange coefficient.
+     */
+    public BigInteger share(long input, BigInteger lagrangeCoefficient, ShareMode mode) {
+        if (mode == ShareMode.FIELD)
+            return evaluateMod(input).multiply(lagrangeCoefficient.mod(field)).mod(field);
+        return evaluate(input).multiply(lagrangeCoefficient);
+    }
+
+    public BigInteger getField() {
+        return field;
+    }
+
+    public int getOrder() {
+        return coefficients.length;
+    }
+
+    /**
+     * @return the coefficients of x, x^2, ..., x^t, the constant term is the secret.
+     */
+    public BigInteger[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder polynomial = new StringBuilder().append(secret);
+        for (int i = 0; i < coefficients.length; i++) {
+            polynomial.append(" + ").append(coefficients[i]).append("x^").append(i + 1);
+        }
+        return polynomial.toString();
+    }
+}
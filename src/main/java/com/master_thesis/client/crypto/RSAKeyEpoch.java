@@ -0,0 +1,161 @@
+package com.master_thesis.client.crypto;
+
+import com.master_thesis.client.data.KeyShareEncoding;
+import com.master_thesis.client.util.ServerSet;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The key material of the Threshold Signature construction for a number of fids: the matrix of the client,
+ * the RSA public key and the shares of the private key. The material belongs to the public parameters it was
+ * generated for, it is only used while the field base, t, the servers and the RSA modulus stay the same.
+ * The private key itself is not kept, only its shares.
+ */
+public class RSAKeyEpoch {
+
+    // The entries of the matrix and the key vector of the DOUBLE encoding are below this prime, as they were ints.
+    private static final BigInteger INT_BOUND = BigInteger.valueOf(Integer.MAX_VALUE);
+
+    private final BigInteger fieldBase;
+    private final int securityThreshold;
+    private final ServerSet serverSet;
+    private final BigInteger rsaN;
+    private final BigInteger rsaNPrime;
+    private final IntegerMatrix matrixOfClient;
+    private final BigInteger publicKey;
+    private final BigInteger[] skShares;
+    private final KeyShareEncoding encoding;
+    private final long ttlNanos;
+    // The System.nanoTime of the first use, the time limit of the epoch starts there and not when it was generated.
+    private final AtomicReference<Long> firstUsedAt = new AtomicReference<>();
+    // The number of fids the epoch can still be used for, negative when it is not limited by fids.
+    private final AtomicLong remainingFids;
+
+    private RSAKeyEpoch(BigInteger fieldBase, int securityThreshold, ServerSet serverSet, BigInteger rsaN, BigInteger rsaNPrime,
+                        IntegerMatrix matrixOfClient, BigInteger publicKey, BigInteger[] skShares, KeyShareEncoding encoding,
+                        long fids, long ttlNanos) {
+        this.fieldBase = fieldBase;
+        this.securityThreshold = securityThreshold;
+        this.serverSet = serverSet;
+        this.rsaN = rsaN;
+        this.rsaNPrime = rsaNPrime;
+        this.matrixOfClient = matrixOfClient;
+        this.publicKey = publicKey;
+        this.skShares = skShares;
+        this.encoding = encoding;
+        this.ttlNanos = ttlNanos;
+        this.remainingFids = new AtomicLong(fids > 0 ? fids : -1);
+    }
+
+    /**
+     * Generates the matrix of the client and the keys.
+     *
+     * @param encoding  DOUBLE generates the material the way it was generated before, so the servers that read
+     *                  it as doubles can represent it. EXACT uses the full private key.
+     * @param fids      the number of fids the material is used for, 0 for no limit.
+     * @param ttlNanos  the time the material is used for after it was first used, 0 for no limit.
+     */
+    public static RSAKeyEpoch generate(BigInteger fieldBase, int securityThreshold, ServerSet serverSet, BigInteger rsaN,
+                                       BigInteger rsaNPrime, KeyShareEncoding encoding, long fids, long ttlNanos, Random random) {
+        int m = serverSet.size();
+        if (m < securityThreshold)
+            throw new RuntimeException("The matrix of the client needs at least t = " + securityThreshold + " servers, there are " + m);
+        // The matrix is drawn with an invertible first t x t block, so no matrix has to be redrawn. The exact
+        // determinant is computed once, it is non-zero because it is non-zero modulo the field base.
+        BigInteger bound = encoding == KeyShareEncoding.EXACT ? fieldBase : fieldBase.min(INT_BOUND);
+        IntegerMatrix matrixOfClient = IntegerMatrix.randomFullRank(m, securityThreshold, bound, random);
+        BigInteger determinant = matrixOfClient.leadingDeterminant();
+
+        // Generate a public key with gcd=1 with determinant and 2p'q'
+        BigInteger rsaNPrimeTwo = rsaNPrime.multiply(BigInteger.TWO);
+        BigInteger publicKey;
+        do {
+            publicKey = new BigInteger(rsaNPrimeTwo.bitLength(), 16, random);
+        } while (!determinant.gcd(publicKey).equals(BigInteger.ONE) || !rsaNPrimeTwo.gcd(publicKey).equals(BigInteger.ONE));
+        BigInteger privateKey = publicKey.modInverse(rsaNPrimeTwo);
+
+        // The first entry of the secret key vector is the private key, the others are random elements of the field.
+        // The DOUBLE encoding keeps the int value of the private key only, as the servers that read it always got.
+        BigInteger[] skVector = new BigInteger[securityThreshold];
+        skVector[0] = encoding == KeyShareEncoding.EXACT ? privateKey : BigInteger.valueOf(privateKey.intValue());
+        for (int i = 1; i < securityThreshold; i++) {
+            skVector[i] = new BigInteger(bound.bitLength() + 8, random).mod(bound);
+        }
+        BigInteger[] skShares = matrixOfClient.multiply(skVector);
+        return new RSAKeyEpoch(fieldBase, securityThreshold, serverSet, rsaN, rsaNPrime, matrixOfClient, publicKey, skShares,
+                encoding, fids, ttlNanos);
+    }
+
+    /**
+     * @return true if the material was generated for these public parameters.
+     */
+    public boolean isFor(BigInteger fieldBase, int securityThreshold, ServerSet serverSet, BigInteger rsaN, BigInteger rsaNPrime,
+                         KeyShareEncoding encoding) {
+        return this.securityThreshold == securityThreshold
+                && this.encoding == encoding
+                && this.serverSet.getVersion() == serverSet.getVersion()
+                && this.fieldBase.equals(fieldBase)
+                && this.rsaN.equals(rsaN)
+                && this.rsaNPrime.equals(rsaNPrime);
+    }
+
+    /**
+     * Takes one fid of the epoch.
+     *
+     * @param now the current System.nanoTime.
+     * @return false if the epoch is used up or expired, it must not be used anymore.
+     */
+    public boolean tryUse(long now) {
+        if (ttlNanos > 0) {
+            firstUsedAt.compareAndSet(null, now);
+            if (now - firstUsedAt.get() >= ttlNanos)
+                return false;
+        }
+        long remaining = remainingFids.get();
+        while (remaining != -1) {
+            if (remaining == 0)
+                return false;
+            if (remainingFids.compareAndSet(remaining, remaining - 1))
+                return true;
+            remaining = remainingFids.get();
+        }
+        return true;
+    }
+
+    public ServerSet getServerSet() {
+        return serverSet;
+    }
+
+    public BigInteger getRsaN() {
+        return rsaN;
+    }
+
+    public IntegerMatrix getMatrixOfClient() {
+        return matrixOfClient;
+    }
+
+    public BigInteger getPublicKey() {
+        return publicKey;
+    }
+
+    public BigInteger[] getSkShares() {
+        return skShares.clone();
+    }
+
+    public KeyShareEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public String toString() {
+        return "RSAKeyEpoch{" +
+                "servers=" + serverSet.size() +
+                ", t=" + securityThreshold +
+                ", encoding=" + encoding +
+                ", remainingFids=" + remainingFids.get() +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.master_thesis.client.crypto;
+
+import com.master_thesis.client.data.ShareMode;
+import com.master_thesis.client.util.ServerSet;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Everything of a Homomorphic Hash share that does not depend on the secret: the nonce, g^nonce and the share
+ * of every server of a polynomial with constant term zero. With f(x) = secret + r(x) the share of a server is
+ * f(x)L = secret * L + r(x)L, so only secret * L has to be added once the secret is known, and
+ * tau = g^(secret + nonce) = g^secret * g^nonce only needs an exponentiation with the small secret.
+ * A kit must only be used for one share.
+ */
+public class ShareKit {
+
+    private final BigInteger fieldBase;
+    private final BigInteger generator;
+    private final int securityThreshold;
+    private final ServerSet serverSet;
+    private final ShareMode shareMode;
+    private final BigInteger nonce;
+    private final BigInteger nonceHash;
+    // randomShares[i] is r(x)L of server i, reduced modulo the field base in FIELD mode.
+    private final BigInteger[] randomShares;
+
+    private ShareKit(BigInteger fieldBase, BigInteger generator, int securityThreshold, ServerSet serverSet, ShareMode shareMode,
+                     BigInteger nonce, BigInteger nonceHash, BigInteger[] randomShares) {
+        this.fieldBase = fieldBase;
+        this.generator = generator;
+        this.securityThreshold = securityThreshold;
+        this.serverSet = serverSet;
+        this.shareMode = shareMode;
+        this.nonce = nonce;
+        this.nonceHash = nonceHash;
+        this.randomShares = randomShares;
+    }
+
+    public static ShareKit generate(BigInteger fieldBase, BigInteger generator, int securityThreshold, ServerSet serverSet,
+                                    ShareMode shareMode, Random random) {
+        // Get a random nonce value, using a built in java pseudo random number generator (PRNG).
+        BigInteger nonce = BigInteger.valueOf(random.nextLong()).mod(fieldBase);
+        BigInteger nonceHash = FixedBaseExponentiation.modPow(generator, nonce, fieldBase, fieldBase.bitLength() + 1);
+        Polynomial polynomial = Polynomial.random(BigInteger.ZERO, fieldBase, securityThreshold, random);
+        BigInteger[] randomShares = new BigInteger[serverSet.size()];
+        for (int i = 0; i < randomShares.length; i++) {
+            randomShares[i] = polynomial.share(serverSet.getPolynomialInput(i), serverSet.getLagrangeCoefficient(i), shareMode);
+        }
+        return new ShareKit(fieldBase, generator, securityThreshold, serverSet, shareMode, nonce, nonceHash, randomShares);
+    }
+
+    /**
+     * @return true if the kit was generated for these public parameters and share mode.
+     */
+    public boolean isFor(BigInteger fieldBase, BigInteger generator, int securityThreshold, ServerSet serverSet, ShareMode shareMode) {
+        return this.securityThreshold == securityThreshold
+                && this.shareMode == shareMode
+                && this.serverSet.getVersion() == serverSet.getVersion()
+                && this.fieldBase.equals(fieldBase)
+                && this.generator.equals(generator);
+    }
+
+    /**
+     * @return tau, g^(secret + nonce) modulo the field base.
+     */
+    public BigInteger proofComponent(BigInteger secret) {
+        BigInteger secretHash = FixedBaseExponentiation.modPow(generator, secret, fieldBase, fieldBase.bitLength() + 1);
+        return secretHash.multiply(nonceHash).mod(fieldBase);
+    }
+
+    /**
+     * @return the share of the server with the given index in the server set of the kit.
+     */
+    public BigInteger share(int index, BigInteger secret) {
+        BigInteger lagrangeCoefficient = serverSet.getLagrangeCoefficient(index);
+        if (shareMode == ShareMode.FIELD)
+            return secret.multiply(lagrangeCoefficient.mod(fieldBase)).add(randomShares[index]).mod(fieldBase);
+        return secret.multiply(lagrangeCoefficient).add(randomShares[index]);
+    }
+
+    public BigInteger getFieldBase() {
+        return fieldBase;
+    }
+
+    public BigInteger getGenerator() {
+        return generator;
+    }
+
+    public ServerSet getServerSet() {
+        return serverSet;
+    }
+
+    public ShareMode getShareMode() {
+        return shareMode;
+    }
+
+    public BigInteger getNonce() {
+        return nonce;
+    }
+}
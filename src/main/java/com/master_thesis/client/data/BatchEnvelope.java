@@ -0,0 +1,43 @@
+package com.master_thesis.client.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several requests to the same destination sent as one. Every entry holds the endpoint the payload would
+ * have been posted to on its own, e.g. a ServerData to "/api/hash-data" or a NonceData to "/lastClient/newNonce".
+ */
+public class BatchEnvelope {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public void add(String endpoint, Object payload) {
+        entries.add(new Entry(endpoint, payload));
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static class Entry {
+        private final String endpoint;
+        private final Object payload;
+
+        public Entry(String endpoint, Object payload) {
+            this.endpoint = endpoint;
+            this.payload = payload;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public Object getPayload() {
+            return payload;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.master_thesis.client.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.math.BigInteger;
 import java.net.URI;
 import java.util.HashMap;
@@ -13,10 +15,14 @@ public class HomomorphicHashData {
 
 
     public HomomorphicHashData(Map<URI, BigInteger> shares, BigInteger proofComponent, BigInteger nonce) {
+        this(shares, proofComponent, nonce, ShareMode.INTEGER);
+    }
+
+    public HomomorphicHashData(Map<URI, BigInteger> shares, BigInteger proofComponent, BigInteger nonce, ShareMode shareMode) {
         nonceData = new NonceData(nonce);
         verifierData = new VerifierData(proofComponent);
         serverData = new HashMap<>();
-        shares.forEach((uri, secretShare) -> serverData.put(uri, new ServerData(secretShare)));
+        shares.forEach((uri, secretShare) -> serverData.put(uri, new ServerData(secretShare, shareMode)));
     }
 
     public HomomorphicHashData(HomomorphicHashData old) {
@@ -59,15 +65,26 @@ public class HomomorphicHashData {
 
     public static class ServerData extends ComputationData {
         private BigInteger secretShare;
+        private ShareMode shareMode;
 
         public ServerData(BigInteger secretShare) {
+            this(secretShare, ShareMode.INTEGER);
+        }
+
+        public ServerData(BigInteger secretShare, ShareMode shareMode) {
             super(Construction.HASH);
             this.secretShare = secretShare;
+            this.shareMode = shareMode;
         }
 
         public BigInteger getSecretShare() {
             return secretShare;
         }
+
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = ShareMode.OmitInteger.class)
+        public ShareMode getShareMode() {
+            return shareMode;
+        }
     }
 
     public static class NonceData extends ComputationData {
@@ -0,0 +1,19 @@
+package com.master_thesis.client.data;
+
+/**
+ * How the matrix of the client and the shares of the RSA private key of the Threshold Signature construction are
+ * generated and sent to the servers.
+ */
+public enum KeyShareEncoding {
+    /**
+     * The format the servers have always read, the matrix and the key shares as serialized SimpleMatrix objects of
+     * doubles. As before, the entries are ints and the private key is reduced to its int value, so the shares are
+     * finite doubles, which lose precision past 2^53.
+     */
+    DOUBLE,
+    /**
+     * The full private key, the matrix and the key shares are sent as exact integers in exactMatrixOfClient and
+     * exactSkShare, and the double fields are left out. The servers must read the exact fields.
+     */
+    EXACT
+}
@@ -1,5 +1,6 @@
 package com.master_thesis.client.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -78,15 +79,26 @@ public class LinearSignatureData {
 
     public static class ServerData extends ComputationData {
         private BigInteger secretShare;
+        private ShareMode shareMode;
 
         public ServerData(BigInteger secretShare) {
+            this(secretShare, ShareMode.INTEGER);
+        }
+
+        public ServerData(BigInteger secretShare, ShareMode shareMode) {
             super(Construction.LINEAR);
             this.secretShare = secretShare;
+            this.shareMode = shareMode;
         }
 
         public BigInteger getSecretShare() {
             return secretShare;
         }
+
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = ShareMode.OmitInteger.class)
+        public ShareMode getShareMode() {
+            return shareMode;
+        }
     }
 
     public static class NonceData extends ComputationData {
@@ -141,6 +153,9 @@ public class LinearSignatureData {
     public static class PublicData {
         private BigInteger N, NRoof, fidPrime, g1, g2;
         private BigInteger[] h, sk;
+        // When the data is scoped to one client, h is not known and only the h of that client is kept.
+        private BigInteger clientH;
+        private int clientID = -1;
 
         public PublicData() {};
 
@@ -206,6 +221,27 @@ public class LinearSignatureData {
             return sk;
         }
 
+        /**
+         * @return the h of the client, either from the h of all clients or from the data scoped to the client.
+         */
+        public BigInteger getClientH(int clientID) {
+            if (h != null)
+                return h[clientID];
+            if (clientID != this.clientID)
+                throw new IllegalArgumentException("The public data belongs to client " + this.clientID + ", not to client " + clientID);
+            return clientH;
+        }
+
+        /**
+         * Combines the public data that is the same for every fid with the data of one fid and client.
+         */
+        public static PublicData forClient(PublicData staticData, ClientData clientData, int clientID) {
+            PublicData data = new PublicData(staticData.N, staticData.NRoof, clientData.getFidPrime(), staticData.g1, staticData.g2, null, staticData.sk);
+            data.clientH = clientData.getH();
+            data.clientID = clientID;
+            return data;
+        }
+
         public void setSk(BigInteger[] sk) {
             this.sk = sk;
         }
@@ -220,4 +256,35 @@ public class LinearSignatureData {
         }
     }
 
+    /**
+     * The part of the public data of a fid that one client needs.
+     */
+    public static class ClientData {
+        private BigInteger fidPrime, h;
+
+        public ClientData() {
+        }
+
+        public ClientData(BigInteger fidPrime, BigInteger h) {
+            this.fidPrime = fidPrime;
+            this.h = h;
+        }
+
+        public BigInteger getFidPrime() {
+            return fidPrime;
+        }
+
+        public void setFidPrime(BigInteger fidPrime) {
+            this.fidPrime = fidPrime;
+        }
+
+        public BigInteger getH() {
+            return h;
+        }
+
+        public void setH(BigInteger h) {
+            this.h = h;
+        }
+    }
+
 }
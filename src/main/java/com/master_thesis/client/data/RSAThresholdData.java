@@ -1,6 +1,8 @@
 package com.master_thesis.client.data;
 
 import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.master_thesis.client.crypto.IntegerMatrix;
 import org.ejml.simple.SimpleMatrix;
 import org.slf4j.LoggerFactory;
 
@@ -59,11 +61,21 @@ public class RSAThresholdData {
 
         private static final Logger log = (Logger) LoggerFactory.getLogger(ServerData.class);
         private BigInteger share, proofComponent, rsaN;
-        private SimpleMatrix matrixOfClient, skShare;
+        private IntegerMatrix matrixOfClient;
+        private BigInteger[] skShare;
+        private ShareMode shareMode;
+        private KeyShareEncoding encoding;
 
 
-        public ServerData(BigInteger share, BigInteger proofComponent, SimpleMatrix matrixOfClient, SimpleMatrix skShare, BigInteger rsaN) {
+        public ServerData(BigInteger share, BigInteger proofComponent, IntegerMatrix matrixOfClient, BigInteger[] skShare, BigInteger rsaN) {
+            this(share, proofComponent, matrixOfClient, skShare, rsaN, ShareMode.INTEGER, KeyShareEncoding.DOUBLE);
+        }
+
+        public ServerData(BigInteger share, BigInteger proofComponent, IntegerMatrix matrixOfClient, BigInteger[] skShare, BigInteger rsaN,
+                          ShareMode shareMode, KeyShareEncoding encoding) {
             super(Construction.RSA);
+            this.shareMode = shareMode;
+            this.encoding = encoding;
             this.share = share;
             this.proofComponent = proofComponent;
             this.rsaN = rsaN;
@@ -83,12 +95,49 @@ public class RSAThresholdData {
             return rsaN;
         }
 
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = ShareMode.OmitInteger.class)
+        public ShareMode getShareMode() {
+            return shareMode;
+        }
+
+        /**
+         * @return the matrix as a serialized SimpleMatrix of doubles, null in the EXACT encoding.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public byte[] getMatrixOfClient() {
-            return getObjectAsByteArray(matrixOfClient);
+            if (encoding != KeyShareEncoding.DOUBLE)
+                return null;
+            return getObjectAsByteArray(new SimpleMatrix(matrixOfClient.toDoubleArray()));
         }
 
+        /**
+         * @return the shares of the secret key as a serialized SimpleMatrix of doubles, null in the EXACT encoding.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public byte[] getSkShare() {
-            return getObjectAsByteArray(skShare);
+            if (encoding != KeyShareEncoding.DOUBLE)
+                return null;
+            double[][] column = new double[skShare.length][1];
+            for (int i = 0; i < skShare.length; i++) {
+                column[i][0] = skShare[i].doubleValue();
+            }
+            return getObjectAsByteArray(new SimpleMatrix(column));
+        }
+
+        /**
+         * @return the exact matrix, null in the DOUBLE encoding, which the servers that read doubles do not expect.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public BigInteger[][] getExactMatrixOfClient() {
+            return encoding == KeyShareEncoding.EXACT ? matrixOfClient.toArray() : null;
+        }
+
+        /**
+         * @return the exact shares of the secret key, null in the DOUBLE encoding.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public BigInteger[] getExactSkShare() {
+            return encoding == KeyShareEncoding.EXACT ? skShare : null;
         }
 
 
@@ -0,0 +1,35 @@
+package com.master_thesis.client.data;
+
+/**
+ * How the shares of a construction are computed, selected per construction with client.share-mode.*. The FIELD
+ * mode is sent along with every share so that the servers know how to combine them. INTEGER shares are sent
+ * without a mode, and the servers read a share without a mode as an INTEGER share.
+ */
+public enum ShareMode {
+    /**
+     * The polynomial and the Lagrange coefficient are computed over the integers, the size of a share grows with
+     * t and with the number of servers. The sum of the shares is the secret.
+     */
+    INTEGER,
+    /**
+     * The polynomial and the Lagrange coefficient are reduced modulo the field, every share is smaller than the
+     * field. The sum of the shares modulo the field is the secret modulo the field.
+     */
+    FIELD;
+
+    /**
+     * Leaves the mode out of the JSON of a share when it is INTEGER, so the shares of the default mode are sent
+     * in the format the servers read before there were modes. Jackson leaves a value out when it equals the filter.
+     */
+    public static class OmitInteger {
+        @Override
+        public boolean equals(Object value) {
+            return value == INTEGER;
+        }
+
+        @Override
+        public int hashCode() {
+            return INTEGER.hashCode();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.master_thesis.client.differentialprivacy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The public parameters of the Laplace mechanism that every meter uses and the consumption data the meters
+ * read by default. One meter contributes l0Sensitivity readings of at most lInfSensitivity each.
+ */
+@Component
+public class DefaultPublicData {
+
+    private double epsilon = 1 / 16d;
+    private int l0Sensitivity = 1;
+    private long lInfSensitivity = 1;
+    private String dataPath = "src/main/resources/testdata.csv";
+
+    @Autowired
+    public void configure(@Value("${client.dp.epsilon:0.0625}") double epsilon,
+                          @Value("${client.dp.l0-sensitivity:1}") int l0Sensitivity,
+                          @Value("${client.dp.linf-sensitivity:1}") long lInfSensitivity,
+                          @Value("${client.dp.data-path:src/main/resources/testdata.csv}") String dataPath) {
+        this.epsilon = epsilon;
+        this.l0Sensitivity = l0Sensitivity;
+        this.lInfSensitivity = lInfSensitivity;
+        this.dataPath = dataPath;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public int getL0Sensitivity() {
+        return l0Sensitivity;
+    }
+
+    public long getLInfSensitivity() {
+        return lInfSensitivity;
+    }
+
+    public long getL1Sensitivity() {
+        return l0Sensitivity * lInfSensitivity;
+    }
+
+    /**
+     * @return the csv file with the time of the readings in the first column and a meter in every other column.
+     */
+    public String getDataPath() {
+        return dataPath;
+    }
+}
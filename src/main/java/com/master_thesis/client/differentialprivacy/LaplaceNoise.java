@@ -0,0 +1,101 @@
+package com.master_thesis.client.differentialprivacy;
+
+import com.master_thesis.client.util.RandomWords;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Laplace mechanism. Readings of the meters are integers, for them the discrete Laplace distribution (the
+ * two sided geometric distribution) is used, which has no floating point results to round. Both give
+ * epsilon-differential privacy for the L1 sensitivity of the value, the largest change of it that one
+ * meter can cause. With at most l0Sensitivity contributions of at most lInfSensitivity each, that is their
+ * product.
+ * <p>
+ * A sample takes one word from the RandomWords of the thread, its low bit is the sign and its high bits a
+ * uniform value whose logarithm is an exponential sample, so sampling allocates nothing and takes a single
+ * logarithm, half of what the difference of two exponential samples takes. The continuous mechanism computes in doubles and
+ * has the floating point weaknesses Mironov described, the discrete one should be preferred for readings.
+ */
+@Component
+public class LaplaceNoise {
+
+    /**
+     * @param delta must be null or 0, the Laplace mechanism is not approximate.
+     * @return the value with noise of scale l0Sensitivity * lInfSensitivity / epsilon.
+     */
+    public double addNoise(double x, int l0Sensitivity, double lInfSensitivity, double epsilon, Double delta) {
+        checkParameters(l0Sensitivity * lInfSensitivity, epsilon, delta);
+        long word = RandomWords.current().nextLong();
+        double exponential = -Math.log(((word >>> 11) + 1) * 0x1.0p-53);
+        double scale = l0Sensitivity * lInfSensitivity / epsilon;
+        return x + ((word & 1) == 0 ? scale * exponential : -scale * exponential);
+    }
+
+    /**
+     * @param delta must be null or 0, the Laplace mechanism is not approximate.
+     * @return the value with discrete Laplace noise of scale l0Sensitivity * lInfSensitivity / epsilon.
+     */
+    public long addNoise(long x, int l0Sensitivity, long lInfSensitivity, double epsilon, Double delta) {
+        return addNoise(x, l0Sensitivity * lInfSensitivity, epsilon, delta);
+    }
+
+    /**
+     * @param delta must be null or 0, the Laplace mechanism is not approximate.
+     * @return the value with discrete Laplace noise of scale l1Sensitivity / epsilon.
+     */
+    public long addNoise(long x, long l1Sensitivity, double epsilon, Double delta) {
+        checkParameters(l1Sensitivity, epsilon, delta);
+        return x + sample(RandomWords.current(), l1Sensitivity / epsilon);
+    }
+
+    /**
+     * Adds discrete Laplace noise of scale l1Sensitivity / epsilon to every value.
+     */
+    public void addNoise(long[] values, long l1Sensitivity, double epsilon) {
+        checkParameters(l1Sensitivity, epsilon, null);
+        RandomWords words = RandomWords.current();
+        double scale = l1Sensitivity / epsilon;
+        for (int i = 0; i < values.length; i++) {
+            values[i] += sample(words, scale);
+        }
+    }
+
+    /**
+     * Gives each of the first count values noise, as every meter does before it shares its reading, and sums
+     * them, as the servers do. The values are not changed.
+     *
+     * @return the sum of the values with noise.
+     */
+    public long addNoiseAndSum(long[] values, int count, long l1Sensitivity, double epsilon) {
+        checkParameters(l1Sensitivity, epsilon, null);
+        RandomWords words = RandomWords.current();
+        double scale = l1Sensitivity / epsilon;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i] + sample(words, scale);
+        }
+        return sum;
+    }
+
+    // floor(scale * E) of an exponential E is geometric with P(G >= k) = exp(-k / scale). With a random sign it
+    // is discrete Laplace with P(X = k) proportional to exp(-|k| / scale), once the zeros with a negative sign
+    // are rejected, since zero would otherwise be drawn with both signs.
+    private static long sample(RandomWords words, double scale) {
+        while (true) {
+            long word = words.nextLong();
+            long geometric = (long) (-Math.log(((word >>> 11) + 1) * 0x1.0p-53) * scale);
+            if ((word & 1) == 0)
+                return geometric;
+            if (geometric != 0)
+                return -geometric;
+        }
+    }
+
+    private static void checkParameters(double l1Sensitivity, double epsilon, Double delta) {
+        if (!(l1Sensitivity > 0))
+            throw new IllegalArgumentException("The sensitivity must be positive, it is " + l1Sensitivity);
+        if (!(epsilon > 0) || Double.isInfinite(epsilon))
+            throw new IllegalArgumentException("Epsilon must be positive and finite, it is " + epsilon);
+        if (delta != null && delta != 0)
+            throw new IllegalArgumentException("The Laplace mechanism has no delta, it is " + delta);
+    }
+}
@@ -0,0 +1,8 @@
+package com.master_thesis.client.differentialprivacy;
+
+/**
+ * The noise a meter adds to its reading before it is shared with the Differential Privacy construction.
+ */
+public enum NoiseMechanism {
+    GAUSSIAN, LAPLACE
+}
@@ -0,0 +1,318 @@
+package com.master_thesis.client.simulation;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.MeterState;
+import com.master_thesis.client.SharePipeline;
+import com.master_thesis.client.data.Construction;
+import com.master_thesis.client.util.HttpAdapter;
+import com.master_thesis.client.util.LogTail;
+import com.master_thesis.client.util.MappedCsv;
+import com.master_thesis.client.util.Reader;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs many virtual meters in one JVM. Every meter has its own registration, fid and reader, while the
+ * constructions, the public parameters and the http client are shared between them. The readings are computed
+ * on a fixed number of threads and the number of readings that are waiting for their sends to be acked is
+ * bounded, so the number of meters is only limited by the memory of their states.
+ */
+@Component
+public class MeterSimulation {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(MeterSimulation.class);
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+    private SharePipeline sharePipeline;
+    private HttpAdapter httpAdapter;
+    private int maxInFlight;
+
+    @Autowired
+    public MeterSimulation(SharePipeline sharePipeline, HttpAdapter httpAdapter, @Value("${client.simulation.max-in-flight:1024}") int maxInFlight) {
+        this.sharePipeline = sharePipeline;
+        this.httpAdapter = httpAdapter;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Registers the meters and lets each of them share a number of readings.
+     * Every meter shares one reading per round, a round is finished before the next one starts.
+     *
+     * @param template         the meters read their values in the same way as this reader.
+     * @param meters           the number of meters to simulate.
+     * @param readingsPerMeter the number of readings each meter shares.
+     * @param threads          the number of threads computing the shares.
+     * @param constructions    the constructions every reading is shared with.
+     * @return the aggregated result of all meters.
+     */
+    public Report run(Reader template, int meters, int readingsPerMeter, int threads, Collection<Construction> constructions) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreads("meter-simulation"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(daemonThreads("meter-simulation-report"));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        LongAdder shares = new LongAdder();
+        LongAdder failures = new LongAdder();
+        try {
+            List<MeterState> states = register(template, meters, executor, inFlight);
+            log.info("Registered {} meters", states.size());
+
+            long start = System.nanoTime();
+            reporter.scheduleAtFixedRate(() -> log.info("{} shares, {} shares/s, {} failed readings",
+                    shares.sum(), perSecond(shares.sum(), start), failures.sum()),
+                    REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            // The meters of a file share the mapping of the template, so it counts the values of all of them.
+            MappedCsv file = template.getMappedFile();
+            if (file != null)
+                reporter.scheduleAtFixedRate(() -> log.info("{} values read from {}, {} values/s",
+                        file.getValuesRead(), file.getPath(), file.getValuesPerSecond()),
+                        REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            if (template.isReplaying()) {
+                replay(states, readingsPerMeter, constructions, executor, shares, failures);
+            } else if (template.isFollowingLog() && template.getLogTail() != null) {
+                LogTail tail = template.getLogTail();
+                reporter.scheduleAtFixedRate(() -> log.info("{} readings ingested from {}, {} sent, {} ms average and {} ms max from ingest to send",
+                        tail.getIngested(), tail.getPath(), tail.getSent(), tail.getAverageLatencyMillis(), tail.getMaxLatencyMillis()),
+                        REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                follow(states, readingsPerMeter, constructions, executor, shares, failures);
+                log.info("{} ms average and {} ms max from ingest to send", tail.getAverageLatencyMillis(), tail.getMaxLatencyMillis());
+            } else {
+                for (int round = 0; round < readingsPerMeter; round++) {
+                    List<CompletableFuture<Integer>> readings = new ArrayList<>(states.size());
+                    for (MeterState meter : states) {
+                        inFlight.acquireUninterruptibly();
+                        readings.add(CompletableFuture.supplyAsync(() -> sharePipeline.readAndSendShare(meter, constructions), executor)
+                                .thenCompose(Function.identity())
+                                .whenComplete((delivered, e) -> {
+                                    inFlight.release();
+                                    count(meter, delivered, e, constructions, shares, failures);
+                                }));
+                    }
+                    httpAdapter.flush();
+                    CompletableFuture.allOf(readings.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+                }
+            }
+
+            Report report = new Report(states.size(), shares.sum(), failures.sum(), (System.nanoTime() - start) / 1e9);
+            log.info("{}", report);
+            return report;
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Every meter shares its readings when the replay of its reader says they are due, instead of in rounds.
+     * A meter has at most one reading that is computed or sent at a time, a reading that is due while the one
+     * before it is still being sent is shared right after it, so the replay falls behind when the meters
+     * cannot keep up with it.
+     */
+    private void replay(List<MeterState> states, int readingsPerMeter, Collection<Construction> constructions,
+                        ExecutorService executor, LongAdder shares, LongAdder failures) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("meter-simulation-replay"));
+        LongAccumulator maxLag = new LongAccumulator(Math::max, 0);
+        try {
+            List<CompletableFuture<Void>> meters = new ArrayList<>(states.size());
+            for (MeterState meter : states) {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                scheduleReading(meter, readingsPerMeter, constructions, executor, scheduler, shares, failures, maxLag, done);
+                meters.add(done);
+            }
+            CompletableFuture.allOf(meters.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        } finally {
+            scheduler.shutdownNow();
+        }
+        log.info("Replayed the readings at most {} ms after they were due", TimeUnit.NANOSECONDS.toMillis(maxLag.get()));
+    }
+
+    /**
+     * Every meter shares the readings of its column of the followed log as soon as they land, instead of in
+     * rounds. The readings of a meter are shared one after the other on one of the threads, the sending is not
+     * waited for.
+     */
+    private void follow(List<MeterState> states, int readingsPerMeter, Collection<Construction> constructions,
+                        ExecutorService executor, LongAdder shares, LongAdder failures) {
+        List<CompletableFuture<Void>> meters = new ArrayList<>(states.size());
+        for (MeterState meter : states) {
+            Follower follower = new Follower(meter, readingsPerMeter, constructions, executor, shares, failures);
+            meter.getReader().onReading(follower::onReading);
+            meters.add(follower.done);
+        }
+        try {
+            CompletableFuture.allOf(meters.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        } finally {
+            states.forEach(meter -> meter.getReader().onReading(null));
+        }
+    }
+
+    private void scheduleReading(MeterState meter, int remaining, Collection<Construction> constructions, ExecutorService executor,
+                                 ScheduledExecutorService scheduler, LongAdder shares, LongAdder failures,
+                                 LongAccumulator maxLag, CompletableFuture<Void> done) {
+        if (remaining == 0) {
+            done.complete(null);
+            return;
+        }
+        long due;
+        try {
+            due = meter.getReader().nextReadingDueAt();
+        } catch (RuntimeException e) {
+            log.error("Client {} stopped its replay: {}", meter.getClientID(), e.getMessage());
+            done.completeExceptionally(e);
+            return;
+        }
+        scheduler.schedule(() -> {
+            maxLag.accumulate(System.nanoTime() - due);
+            CompletableFuture.supplyAsync(() -> sharePipeline.readAndSendShare(meter, constructions), executor)
+                    .thenCompose(Function.identity())
+                    .whenComplete((delivered, e) -> {
+                        count(meter, delivered, e, constructions, shares, failures);
+                        scheduleReading(meter, remaining - 1, constructions, executor, scheduler, shares, failures, maxLag, done);
+                    });
+        }, Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private class Follower {
+        private final MeterState meter;
+        private final int readings;
+        private final Collection<Construction> constructions;
+        private final ExecutorService executor;
+        private final LongAdder shares;
+        private final LongAdder failures;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        // Only changed by the thread that drains.
+        private int taken;
+
+        private Follower(MeterState meter, int readings, Collection<Construction> constructions, ExecutorService executor,
+                         LongAdder shares, LongAdder failures) {
+            this.meter = meter;
+            this.readings = readings;
+            this.constructions = constructions;
+            this.executor = executor;
+            this.shares = shares;
+            this.failures = failures;
+            if (readings == 0)
+                done.complete(null);
+        }
+
+        // Called on the thread that follows the log, the shares are computed on the threads of the simulation.
+        private void onReading() {
+            if (draining.compareAndSet(false, true))
+                executor.execute(this::drain);
+        }
+
+        private void drain() {
+            do {
+                while (taken < readings && meter.getReader().hasPendingReading()) {
+                    taken++;
+                    CompletableFuture<Integer> sent;
+                    try {
+                        sent = sharePipeline.readAndSendShare(meter, constructions);
+                    } catch (RuntimeException e) {
+                        sent = CompletableFuture.failedFuture(e);
+                    }
+                    sent.whenComplete((delivered, e) -> {
+                        count(meter, delivered, e, constructions, shares, failures);
+                        if (completed.incrementAndGet() == readings)
+                            done.complete(null);
+                    });
+                }
+                draining.set(false);
+                // A reading that landed after the check above but before draining was cleared is drained here.
+            } while (taken < readings && meter.getReader().hasPendingReading() && draining.compareAndSet(false, true));
+        }
+    }
+
+    // A reading fails if the shares of any of its constructions could not be delivered, the shares of the
+    // constructions that were delivered are counted all the same.
+    private static void count(MeterState meter, Integer delivered, Throwable e, Collection<Construction> constructions,
+                              LongAdder shares, LongAdder failures) {
+        if (e != null) {
+            failures.increment();
+            log.error("Client {} failed to share a reading: {}", meter.getClientID(), e.getMessage());
+            return;
+        }
+        shares.add(delivered);
+        if (delivered < constructions.size()) {
+            failures.increment();
+            log.debug("Client {} delivered {} of {} constructions", meter.getClientID(), delivered, constructions.size());
+        }
+    }
+
+    private List<MeterState> register(Reader template, int meters, ExecutorService executor, Semaphore inFlight) {
+        List<CompletableFuture<MeterState>> registrations = new ArrayList<>(meters);
+        for (int i = 0; i < meters; i++) {
+            inFlight.acquireUninterruptibly();
+            registrations.add(CompletableFuture
+                    .supplyAsync(() -> new MeterState(httpAdapter.registerClient(), new Reader(template)), executor)
+                    .whenComplete((meter, e) -> inFlight.release()));
+        }
+        List<MeterState> states = new ArrayList<>(meters);
+        registrations.forEach(registration -> states.add(registration.join()));
+        return states;
+    }
+
+    private static double perSecond(long count, long start) {
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class Report {
+        private final int meters;
+        private final long shares;
+        private final long failedReadings;
+        private final double seconds;
+
+        public Report(int meters, long shares, long failedReadings, double seconds) {
+            this.meters = meters;
+            this.shares = shares;
+            this.failedReadings = failedReadings;
+            this.seconds = seconds;
+        }
+
+        public int getMeters() {
+            return meters;
+        }
+
+        public long getShares() {
+            return shares;
+        }
+
+        public long getFailedReadings() {
+            return failedReadings;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+        public double getSharesPerSecond() {
+            return shares / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d meters sent %d shares in %.1f s, %.1f shares/s, %d failed readings",
+                    meters, shares, seconds, getSharesPerSecond(), failedReadings);
+        }
+    }
+}
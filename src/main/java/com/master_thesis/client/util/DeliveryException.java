@@ -0,0 +1,20 @@
+package com.master_thesis.client.util;
+
+import java.net.URI;
+
+/**
+ * Thrown when a request could not be delivered to a destination, after all tries have been used.
+ */
+public class DeliveryException extends RuntimeException {
+
+    private final URI uri;
+
+    public DeliveryException(URI uri, Throwable cause) {
+        super("Could not deliver to " + uri + ": " + cause.getMessage(), cause);
+        this.uri = uri;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+}
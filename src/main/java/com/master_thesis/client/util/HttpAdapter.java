@@ -2,6 +2,7 @@ package com.master_thesis.client.util;
 
 
 import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,15 +10,23 @@ import com.master_thesis.client.data.*;
 import lombok.SneakyThrows;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 
 @Component
@@ -25,10 +34,152 @@ public class HttpAdapter {
 
     private ObjectMapper objectMapper;
     private static final Logger log = (Logger) LoggerFactory.getLogger(HttpAdapter.class);
+    // One client is shared by all requests so that connections are kept alive and reused between them.
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong linearPublicDataBytes = new AtomicLong();
+    private int sendTries = 10;
+    private long retryDelayMs = 2000;
+    private int maxBatchSize = 256;
+    private long maxBatchDelayMs = 50;
+    private boolean prewarm;
+    private URI coordinator = URI.create("http://localhost:4000/");
+    private URI verifier = URI.create("http://localhost:3000/");
+    // When batching is enabled the asynchronous sends are grouped per destination, otherwise it is null.
+    private volatile ShareBatcher batcher;
 
-    @Autowired
     public HttpAdapter() {
+        this(HttpClient.Version.HTTP_2, 5000, 10000);
+    }
+
+    @Autowired
+    public HttpAdapter(@Value("${client.http.version:HTTP_2}") HttpClient.Version version,
+                       @Value("${client.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                       @Value("${client.http.request-timeout-ms:10000}") long requestTimeoutMs) {
         this.objectMapper = new ObjectMapper();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        // With HTTP/2 the client upgrades the connection if the peer supports it and stays on HTTP/1.1 otherwise.
+        this.httpClient = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    @Autowired
+    public void configureBatching(@Value("${client.http.batch.enabled:false}") boolean enabled,
+                                  @Value("${client.http.batch.max-size:256}") int maxBatchSize,
+                                  @Value("${client.http.batch.max-delay-ms:50}") long maxBatchDelayMs) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        setBatching(enabled);
+    }
+
+    /**
+     * @param sendTries    the number of times a request is sent before it is given up, at least 1.
+     * @param retryDelayMs the time to wait after a try that failed before the next one.
+     */
+    @Autowired
+    public void configureRetries(@Value("${client.http.send-tries:10}") int sendTries,
+                                 @Value("${client.http.retry-delay-ms:2000}") long retryDelayMs) {
+        if (sendTries < 1)
+            throw new IllegalArgumentException("A request must be sent at least once, not " + sendTries + " times");
+        this.sendTries = sendTries;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * @param coordinator the root of the coordinator, which hands out the public parameters and takes the nonces.
+     * @param verifier    the root of the verifier, which takes the proof components.
+     */
+    @Autowired
+    public void configureEndpoints(@Value("${client.http.coordinator-uri:http://localhost:4000/}") URI coordinator,
+                                   @Value("${client.http.verifier-uri:http://localhost:3000/}") URI verifier) {
+        this.coordinator = coordinator;
+        this.verifier = verifier;
+    }
+
+    /**
+     * @param prewarm if true, a HEAD request is sent to every server when the meter registers, which opens the
+     *                connections before the first shares. The servers see these requests, so it is off by default.
+     */
+    @Autowired
+    public void setPrewarm(@Value("${client.http.prewarm:false}") boolean prewarm) {
+        this.prewarm = prewarm;
+    }
+
+    /**
+     * In batching mode the asynchronous sends and fid updates are not posted one by one. They are grouped
+     * per destination into one BatchEnvelope, that is sent when it is full or when the maximum delay has passed.
+     * The servers, the coordinator and the verifier have to provide the batch endpoint for this mode.
+     */
+    public synchronized void setBatching(boolean enabled) {
+        if (enabled && batcher == null) {
+            batcher = new ShareBatcher(maxBatchSize, maxBatchDelayMs, this::postRequestAsync);
+        } else if (!enabled && batcher != null) {
+            ShareBatcher closing = batcher;
+            batcher = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * Sends the batches that are waiting and stops the timer of the batching mode.
+     */
+    @PreDestroy
+    public void close() {
+        setBatching(false);
+    }
+
+    public boolean isBatching() {
+        return batcher != null;
+    }
+
+    /**
+     * Sends all batches that are waiting, without waiting for them to fill up.
+     */
+    public void flush() {
+        ShareBatcher current = batcher;
+        if (current != null)
+            current.flushAll();
+    }
+
+    /**
+     * @return the number of HTTP requests that have been sent, including retries.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of bytes of Linear Signature public data that have been received.
+     */
+    public long getLinearPublicDataBytes() {
+        return linearPublicDataBytes.get();
+    }
+
+    /**
+     * Opens a connection to each of the servers without waiting for the answers, such that the first shares
+     * sent to them do not have to pay for the connection setup. Nothing is sent unless pre-warming is enabled.
+     */
+    public CompletableFuture<Void> prewarm(Collection<Server> servers) {
+        if (!prewarm)
+            return CompletableFuture.completedFuture(null);
+        // A HEAD request has no body in either direction and does not ask the server for anything.
+        CompletableFuture<?>[] requests = servers.stream()
+                .map(server -> httpClient.sendAsync(newRequest(server.getUri()).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                        HttpResponse.BodyHandlers.discarding())
+                        .handle((response, e) -> {
+                            if (e != null)
+                                log.debug("Could not pre-warm connection to {}: {}", server.getUri(), e.getMessage());
+                            return response;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(requests);
+    }
+
+    private HttpRequest.Builder newRequest(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(requestTimeout);
     }
 
     @SneakyThrows
@@ -38,19 +189,19 @@ public class HttpAdapter {
 
     @SneakyThrows
     public List<Server> getServers() {
-        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create("http://localhost:4000/api/server/list"))
+        HttpRequest httpRequest = newRequest(coordinator.resolve("api/server/list"))
                 .GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(httpRequest, HttpResponse.BodyHandlers.ofString());
-        return new ObjectMapper().readValue(response.body(), new TypeReference<>() {
+        HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readValue(response.body(), new TypeReference<>() {
         });
     }
 
     public ClientStartupData registerClient() {
-        URI uri = URI.create("http://localhost:4000/api/client/register");
-        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+        URI uri = coordinator.resolve("api/client/register");
+        HttpRequest request = newRequest(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
         HttpResponse<String> response;
         try {
-            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             log.info(response.body());
             return objectMapper.readValue(response.body(), ClientStartupData.class);
         } catch (IOException | InterruptedException e) {
@@ -61,95 +212,226 @@ public class HttpAdapter {
 
     @SneakyThrows
     public BigInteger getFieldBase(int substationID) {
-        URI uri = URI.create("http://localhost:4000/api/setup/fieldBase/" + substationID);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/setup/fieldBase/" + substationID);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         return new BigInteger(response.body());
     }
 
     @SneakyThrows
     public BigInteger getGenerator(int substationID) {
-        URI uri = URI.create("http://localhost:4000/api/setup/generator/" + substationID);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/setup/generator/" + substationID);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         return new BigInteger(response.body());
     }
 
     @SneakyThrows
     public void deleteClients() {
-        URI uri = URI.create("http://localhost:4000/api/client");
-        HttpRequest request = HttpRequest.newBuilder(uri).DELETE().build();
-        HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+        URI uri = coordinator.resolve("api/client");
+        HttpRequest request = newRequest(uri).DELETE().build();
+        httpClient.send(request, HttpResponse.BodyHandlers.discarding());
     }
 
     @SneakyThrows
     public JsonNode listClients(int substationID, int fid) {
-        URI uri = URI.create("http://localhost:4000/api/client/list/" + substationID + "/" + fid);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/client/list/" + substationID + "/" + fid);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         return objectMapper.readValue(response.body(), JsonNode.class);
     }
 
     @SneakyThrows
     public int getTSecurity(int substationID) {
-        URI uri = URI.create("http://localhost:4000/api/setup/t-security/" + substationID);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/setup/t-security/" + substationID);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         return Integer.parseInt(response.body());
     }
 
     @SneakyThrows
     public void sendNonce(Object nonceData) {
-        URI uri = URI.create("http://localhost:4000/lastClient/newNonce");
-        postRequest(uri, nonceData);
+        postRequest(nonceUri(), nonceData);
     }
 
     @SneakyThrows
     public void sendProofComponent(ComputationData clientProofData) {
-        URI uri = URI.create("http://localhost:3000/api/client/" + clientProofData.getConstruction().getEndpoint());
-        postRequest(uri, clientProofData);
+        postRequest(proofComponentUri(clientProofData), clientProofData);
     }
 
+    public CompletableFuture<URI> sendServerShareAsync(URI uri, Object information) {
+        return post(uri, information);
+    }
+
+    public CompletableFuture<URI> sendNonceAsync(Object nonceData) {
+        return post(nonceUri(), nonceData);
+    }
+
+    public CompletableFuture<URI> sendProofComponentAsync(ComputationData clientProofData) {
+        return post(proofComponentUri(clientProofData), clientProofData);
+    }
+
+    private CompletableFuture<URI> post(URI uri, Object body) {
+        ShareBatcher current = batcher;
+        return current == null ? postRequestAsync(uri, body) : current.add(uri, body);
+    }
+
+    /**
+     * Sends everything that belongs to one fid at the same time: the share of every server, the nonce and the
+     * proof component. The returned future completes when all destinations have answered or given up, it does
+     * not complete exceptionally when some of them could not be reached.
+     * @return which of the requests could not be delivered and why.
+     */
+    public CompletableFuture<SendReport> sendAll(Map<URI, ? extends ComputationData> serverData, Object nonceData, ComputationData verifierData) {
+        // The shares are kept in the order of the map, each with the key it was sent to.
+        List<URI> uris = new ArrayList<>(serverData.keySet());
+        List<CompletableFuture<Throwable>> shares = new ArrayList<>(uris.size());
+        uris.forEach(uri -> shares.add(failureOf(sendServerShareAsync(uri, serverData.get(uri)))));
+        CompletableFuture<Throwable> nonce = failureOf(sendNonceAsync(nonceData));
+        CompletableFuture<Throwable> verifier = failureOf(sendProofComponentAsync(verifierData));
+
+        List<CompletableFuture<Throwable>> all = new ArrayList<>(shares);
+        all.add(nonce);
+        all.add(verifier);
+        return CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            Map<URI, Throwable> serverFailures = new LinkedHashMap<>();
+            for (int i = 0; i < uris.size(); i++) {
+                Throwable e = shares.get(i).join();
+                if (e != null)
+                    serverFailures.put(uris.get(i), e);
+            }
+            return new SendReport(all.size(), serverFailures, nonce.join(), verifier.join());
+        });
+    }
+
+    // Completes with the reason the request failed, or with null when it was acked.
+    private static CompletableFuture<Throwable> failureOf(CompletableFuture<URI> request) {
+        return request.handle((uri, e) -> e == null ? null : rootCause(e));
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof DeliveryException) && e.getCause() != null)
+            e = e.getCause();
+        return e;
+    }
+
+    private URI nonceUri() {
+        return coordinator.resolve("lastClient/newNonce");
+    }
+
+    private URI fidUri() {
+        return coordinator.resolve("api/client/fid");
+    }
+
+    private URI proofComponentUri(ComputationData clientProofData) {
+        return verifier.resolve("api/client/" + clientProofData.getConstruction().getEndpoint());
+    }
+
+    // The same policy as postRequestAsync: an error status fails at once, a request that could not be sent is
+    // tried again, and a DeliveryException is thrown when the request could not be delivered.
     @SneakyThrows
     private void postRequest(URI uri, Object body) {
-        boolean sending = true;
-        String jsonObject = objectMapper.writeValueAsString(body);
-        int tries = 10;
-        while (sending) {
+        String jsonObject;
+        try {
+            jsonObject = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new DeliveryException(uri, e);
+        }
+        for (int tries = sendTries; ; tries--) {
+            requestCount.incrementAndGet();
+            HttpResponse<String> response;
             try {
-                HttpRequest request = HttpRequest.newBuilder(uri)
-                        .setHeader("User-Agent", "Java 11 HttpClient Bot") // add request header
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonObject)).build();
-
-                HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-                sending = false;
-                log.debug("To {}: {}", uri, jsonObject);
-                if (!response.body().isEmpty()) {
-                    log.debug("Got answer: {}", response.body());
-                }
-            } catch (InterruptedException | IOException e) {
+                response = httpClient.send(newPostRequest(uri, jsonObject), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
                 log.error("Failed to send to {}: {}", uri, e.getMessage());
-                sending = --tries > 0;
-                Thread.sleep(2000);
+                if (tries <= 1)
+                    throw new DeliveryException(uri, e);
+                Thread.sleep(retryDelayMs);
+                continue;
+            }
+            log.debug("To {}: {}", uri, jsonObject);
+            DeliveryException rejected = rejection(uri, response);
+            if (rejected != null)
+                throw rejected;
+            if (!response.body().isEmpty()) {
+                log.debug("Got answer: {}", response.body());
             }
+            return;
+        }
+    }
+
+    // A request that was answered with an error status is not tried again, the answer would be the same.
+    private static DeliveryException rejection(URI uri, HttpResponse<String> response) {
+        if (response.statusCode() < 400)
+            return null;
+        return new DeliveryException(uri, new IOException("Status code " + response.statusCode() + ": " + response.body()));
+    }
+
+    private CompletableFuture<URI> postRequestAsync(URI uri, Object body) {
+        try {
+            return postRequestAsync(uri, objectMapper.writeValueAsString(body), sendTries);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new DeliveryException(uri, e));
         }
     }
 
+    // The same retry policy as postRequest, but the waiting between the tries does not block a thread.
+    private CompletableFuture<URI> postRequestAsync(URI uri, String jsonObject, int tries) {
+        requestCount.incrementAndGet();
+        return httpClient.sendAsync(newPostRequest(uri, jsonObject), HttpResponse.BodyHandlers.ofString())
+                .handle((response, e) -> {
+                    if (e == null) {
+                        log.debug("To {}: {}", uri, jsonObject);
+                        DeliveryException rejected = rejection(uri, response);
+                        if (rejected != null)
+                            return CompletableFuture.<URI>failedFuture(rejected);
+                        return CompletableFuture.completedFuture(uri);
+                    }
+                    log.error("Failed to send to {}: {}", uri, e.getMessage());
+                    if (tries <= 1)
+                        return CompletableFuture.<URI>failedFuture(new DeliveryException(uri, e instanceof CompletionException ? e.getCause() : e));
+                    return CompletableFuture.runAsync(() -> {
+                    }, CompletableFuture.delayedExecutor(retryDelayMs, TimeUnit.MILLISECONDS))
+                            .thenCompose(retry -> postRequestAsync(uri, jsonObject, tries - 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private HttpRequest newPostRequest(URI uri, String jsonObject) {
+        return newRequest(uri)
+                .setHeader("User-Agent", "Java 11 HttpClient Bot") // add request header
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonObject)).build();
+    }
+
     public void updateFid(int substationID, int clientID, int fid) {
-        URI uri = URI.create("http://localhost:4000/api/client/fid");
+        postRequest(fidUri(), fidUpdate(substationID, clientID, fid));
+    }
+
+    /**
+     * Updates the fid without waiting for the answer. A failure is logged, the returned future always completes normally.
+     */
+    public CompletableFuture<URI> updateFidAsync(int substationID, int clientID, int fid) {
+        URI uri = fidUri();
+        return post(uri, fidUpdate(substationID, clientID, fid)).exceptionally(e -> {
+            log.error("Failed to update fid {} of client {}: {}", fid, clientID, e.getMessage());
+            return uri;
+        });
+    }
+
+    private static Map<String, Integer> fidUpdate(int substationID, int clientID, int fid) {
         Map<String, Integer> body = new HashMap<>();
         body.put("substationID", substationID);
         body.put("clientID", clientID);
         body.put("fid", fid);
-        postRequest(uri, body);
+        return body;
     }
 
     @SneakyThrows
     public BigInteger[] getRSASecretPrimes(int substationID) {
-        URI uri = URI.create("http://localhost:4000/api/setup/" + Construction.RSA.getEndpoint() + "/client/" + substationID);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/setup/" + Construction.RSA.getEndpoint() + "/client/" + substationID);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         log.debug("RSA N for client: {}", response.body());
         if (response.statusCode() != 200) {
             throw new RuntimeException("RSA primes could not be retrieved.");
@@ -159,12 +441,47 @@ public class HttpAdapter {
 
     @SneakyThrows
     public LinearSignatureData.PublicData getLinearPublicData(int substationID, int fid) {
-        URI uri = URI.create("http://localhost:4000/api/" + Construction.LINEAR.getEndpoint() + "/client/" + substationID + "/" + fid);
-        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        URI uri = coordinator.resolve("api/" + Construction.LINEAR.getEndpoint() + "/client/" + substationID + "/" + fid);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         log.debug("Linear Signature public data: {}", response.body());
+        linearPublicDataBytes.addAndGet(response.body().length());
         return objectMapper.readValue(response.body(), LinearSignatureData.PublicData.class);
     }
 
+    /**
+     * Fetches the Linear Signature public data that is the same for every fid of the substation, that is
+     * everything except fidPrime and h.
+     */
+    @SneakyThrows
+    public LinearSignatureData.PublicData getLinearStaticData(int substationID) {
+        URI uri = coordinator.resolve("api/" + Construction.LINEAR.getEndpoint() + "/client/" + substationID + "/static");
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        log.debug("Linear Signature static public data: {}", response.body());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("Linear Signature public data could not be retrieved.");
+        }
+        linearPublicDataBytes.addAndGet(response.body().length());
+        return objectMapper.readValue(response.body(), LinearSignatureData.PublicData.class);
+    }
+
+    /**
+     * Fetches the part of the Linear Signature public data of a fid that one client needs, fidPrime and the
+     * h of the client.
+     */
+    @SneakyThrows
+    public LinearSignatureData.ClientData getLinearClientData(int substationID, int clientID, int fid) {
+        URI uri = coordinator.resolve("api/" + Construction.LINEAR.getEndpoint() + "/client/" + substationID + "/" + fid + "/" + clientID);
+        HttpRequest request = newRequest(uri).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        log.debug("Linear Signature client data: {}", response.body());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("Linear Signature public data could not be retrieved.");
+        }
+        linearPublicDataBytes.addAndGet(response.body().length());
+        return objectMapper.readValue(response.body(), LinearSignatureData.ClientData.class);
+    }
+
 
 }
@@ -0,0 +1,159 @@
+package com.master_thesis.client.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Synthetic meter readings, the consumption of a household in Wh per interval. A reading is a function of the
+ * seed, the meter and the number of the reading, so the readings are generated when they are read, the same
+ * seed always gives the same readings and one profile can feed any number of meters without keeping any of
+ * their readings.
+ * <p>
+ * The consumption follows a daily curve with a morning and an evening peak, which come later on weekends.
+ * Every meter has its own scale and shifts the curve by up to an hour. On top of that all meters share fleet
+ * wide peaks, such as a cold evening, that raise the consumption of every meter in the same hour by its own
+ * sensitivity, and every reading has some noise of its own.
+ */
+public class LoadProfile {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // The consumption in Wh per hour of the curve before it is scaled for a meter.
+    private static final double BASE_LOAD = 150;
+    private static final double MORNING_PEAK = 350;
+    private static final double EVENING_PEAK = 650;
+    // A fleet wide peak lasts an hour, 5% of the hours have one, which raises the consumption by up to 80%.
+    private static final int PEAK_MINUTES = 60;
+    private static final double PEAK_PROBABILITY = 0.05;
+    private static final double PEAK_GAIN = 0.8;
+    // The standard deviation of the noise of a reading, relative to the reading.
+    private static final double NOISE = 0.15;
+
+    // Salts of the hashes, so the random values of a meter are independent of each other.
+    private static final long SCALE = 1;
+    private static final long SHIFT = 2;
+    private static final long SENSITIVITY = 3;
+    private static final long PEAK = 4;
+    private static final long PEAK_SIZE = 5;
+    private static final long NOISE_RADIUS = 6;
+    private static final long NOISE_ANGLE = 7;
+
+    private final long seed;
+    private final int intervalMinutes;
+    private final AtomicInteger nextMeter = new AtomicInteger();
+
+    /**
+     * @param seed            the readings of two profiles with the same seed and interval are the same.
+     * @param intervalMinutes the minutes between two readings of a meter, the first reading is at midnight of a
+     *                        Monday.
+     */
+    public LoadProfile(long seed, int intervalMinutes) {
+        if (intervalMinutes <= 0)
+            throw new IllegalArgumentException("The interval must be positive, it is " + intervalMinutes);
+        this.seed = seed;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    /**
+     * @return the readings of the meter, starting with its first reading.
+     */
+    public Meter meter(int meter) {
+        return new Meter(meter);
+    }
+
+    /**
+     * @return the readings of the meter after the last one that was handed out.
+     */
+    public Meter nextMeter() {
+        return new Meter(nextMeter.getAndIncrement());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getIntervalMinutes() {
+        return intervalMinutes;
+    }
+
+    /**
+     * @param step the number of the reading, the reading at step is taken step * interval minutes after the
+     *             first one.
+     * @return the consumption of the meter in Wh during the interval before the reading.
+     */
+    public long reading(int meter, long step) {
+        long minutes = step * intervalMinutes;
+        long shift = (long) ((uniform(meter, SHIFT, 0) - 0.5) * 120);
+        long minuteOfWeek = Math.floorMod(minutes + shift, 7L * MINUTES_PER_DAY);
+        boolean weekend = minuteOfWeek >= 5L * MINUTES_PER_DAY;
+        double hour = (minuteOfWeek % MINUTES_PER_DAY) / 60.0;
+        double load = BASE_LOAD
+                + MORNING_PEAK * peak(hour, weekend ? 9.5 : 7.5, 1.2)
+                + EVENING_PEAK * peak(hour, weekend ? 18.5 : 19, 2);
+
+        // The fleet wide peaks do not depend on the meter, only how much they raise its consumption does.
+        long peakHour = Math.floorDiv(minutes, PEAK_MINUTES);
+        if (uniform(-1, PEAK, peakHour) < PEAK_PROBABILITY)
+            load *= 1 + PEAK_GAIN * uniform(-1, PEAK_SIZE, peakHour) * uniform(meter, SENSITIVITY, 0);
+
+        double scale = 0.4 + 1.2 * uniform(meter, SCALE, 0);
+        double noise = 1 + NOISE * gaussian(meter, step);
+        return Math.max(0, Math.round(load * scale * noise * intervalMinutes / 60));
+    }
+
+    // A peak of the daily curve at the hour, the distance to it wraps around midnight.
+    private static double peak(double hour, double center, double width) {
+        double distance = Math.abs(hour - center);
+        distance = Math.min(distance, 24 - distance) / width;
+        return Math.exp(-0.5 * distance * distance);
+    }
+
+    // A standard normal value by the Box-Muller transform.
+    private double gaussian(int meter, long step) {
+        double radius = 1 - uniform(meter, NOISE_RADIUS, step);
+        double angle = uniform(meter, NOISE_ANGLE, step);
+        return Math.sqrt(-2 * Math.log(radius)) * Math.cos(2 * Math.PI * angle);
+    }
+
+    // A uniform value in [0, 1) that only depends on the seed and the arguments.
+    private double uniform(long meter, long salt, long step) {
+        long hash = mix(seed + mix(meter * 0x9E3779B97F4A7C15L + salt) + step * 0xC2B2AE3D27D4EB4FL);
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    // The finalizer of SplitMix64.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The readings of one meter. A meter must only be read by one thread at a time.
+     */
+    public class Meter {
+
+        private final int meter;
+        private long step;
+
+        private Meter(int meter) {
+            this.meter = meter;
+        }
+
+        /**
+         * @return the next reading of the meter.
+         */
+        public long nextLong() {
+            return reading(meter, step++);
+        }
+
+        public int getMeter() {
+            return meter;
+        }
+
+        /**
+         * @return the number of the reading that is read next.
+         */
+        public long getStep() {
+            return step;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.master_thesis.client.util;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Follows a log of meter readings that is appended to, like tail -f. A watch service reports when the file
+ * changes, and only the bytes after the last complete line are read, at their position in the file. Every
+ * line holds a reading per column. Each reading is handed to the subscription of its column as soon as its
+ * line is complete, together with the time it was read.
+ * <p>
+ * The log is followed from its end at the time it is opened. If the file is truncated or replaced by another
+ * file, as when the log is rotated, it is followed from its beginning again. A replaced file is told apart by
+ * its file key, or by its creation time where the file system has no keys. Some watch services only poll for
+ * changes, so the file is also checked every POLL_MILLIS when no change is reported.
+ */
+public class LogTail implements Closeable {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(LogTail.class);
+    private static final long POLL_MILLIS = 500;
+    // A line must fit into the buffer.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final Thread follower;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextColumn = new AtomicInteger();
+    private final LongAdder ingested = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    // The offset in the file of the first byte in the buffer.
+    private volatile long bufferOffset;
+    // The offset in the file up to which it has been read, including the start of a line that is not complete.
+    private volatile long readPosition;
+    // The file key or creation time of the file that is followed, null while it does not exist.
+    private Object fileId;
+    private volatile boolean closed;
+
+    private LogTail(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        if (Files.exists(this.path)) {
+            this.fileId = fileId(Files.readAttributes(this.path, BasicFileAttributes.class));
+            this.bufferOffset = Files.size(this.path);
+        }
+        this.readPosition = bufferOffset;
+        WatchService watcher = this.path.getFileSystem().newWatchService();
+        this.path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        follower = new Thread(() -> follow(watcher), "meter-log-tail");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    /**
+     * Starts following the file from its current end. The file does not have to exist yet.
+     */
+    public static LogTail follow(Path path) throws IOException {
+        return new LogTail(path);
+    }
+
+    /**
+     * @return the subscription of the column, a column has one subscription that all callers share.
+     */
+    public Subscription subscribe(int column) {
+        return subscriptions.computeIfAbsent(column, Subscription::new);
+    }
+
+    /**
+     * @return the subscription of the next column that has not been handed out by this method.
+     */
+    public Subscription subscribeNext() {
+        return subscribe(nextColumn.getAndIncrement());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the offset in the file up to which it has been read, a line that is not complete yet included.
+     */
+    public long getReadPosition() {
+        return readPosition;
+    }
+
+    /**
+     * @return the number of readings read from the log.
+     */
+    public long getIngested() {
+        return ingested.sum();
+    }
+
+    /**
+     * @return the number of readings whose shares have been sent.
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return the average time from reading a line to sending the shares of its reading.
+     */
+    public double getAverageLatencyMillis() {
+        long sent = this.sent.sum();
+        return sent == 0 ? 0 : latencyNanos.sum() / 1e6 / sent;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        follower.interrupt();
+    }
+
+    // Called once the shares of the reading have been handed to the http client.
+    void recordSent(Reading reading) {
+        long latency = System.nanoTime() - reading.getIngestedAt();
+        sent.increment();
+        latencyNanos.add(latency);
+        maxLatencyNanos.accumulate(latency);
+    }
+
+    private void follow(WatchService watcher) {
+        try (watcher) {
+            while (!closed) {
+                readNewLines();
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    // Any change in the directory is checked against the size of the file, which is cheap.
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Stopped following {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void readNewLines() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Object id = fileId(Files.readAttributes(path, BasicFileAttributes.class));
+            if (fileId != null && !fileId.equals(id)) {
+                log.info("{} was replaced, following the new file from its beginning", path);
+                restart();
+            } else if (channel.size() < bufferOffset + buffer.position()) {
+                log.info("{} was truncated, following it from its beginning", path);
+                restart();
+            }
+            fileId = id;
+            // The buffer holds the start of a line that was not complete when it was read last.
+            while (channel.read(buffer, bufferOffset + buffer.position()) > 0) {
+                long ingestedAt = System.nanoTime();
+                buffer.flip();
+                int lineStart = 0;
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        parseLine(lineStart, i, bufferOffset + i + 1, ingestedAt);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart == 0 && buffer.limit() == buffer.capacity()) {
+                    log.error("{} has a line longer than {} bytes at {}, it is skipped", path, BUFFER_SIZE, bufferOffset);
+                    lineStart = buffer.limit();
+                }
+                bufferOffset += lineStart;
+                buffer.position(lineStart);
+                buffer.compact();
+                readPosition = bufferOffset + buffer.position();
+            }
+        } catch (NoSuchFileException e) {
+            // The file is followed once it is created.
+        }
+    }
+
+    private void restart() {
+        bufferOffset = 0;
+        readPosition = 0;
+        buffer.clear();
+    }
+
+    private static Object fileId(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key : attributes.creationTime();
+    }
+
+    // Hands the integer of every column of the line to the subscription of the column.
+    private void parseLine(int start, int end, long next, long ingestedAt) {
+        int column = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && buffer.get(i) == ' ')
+                i++;
+            boolean negative = i < end && buffer.get(i) == '-';
+            if (negative)
+                i++;
+            long value = 0;
+            int digits = 0;
+            byte b;
+            while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digits++;
+                i++;
+            }
+            Subscription subscription = subscriptions.get(column);
+            if (digits > 0) {
+                ingested.increment();
+                if (subscription != null)
+                    subscription.offer(new Reading(negative ? -value : value, ingestedAt, next));
+            }
+            while (i < end && buffer.get(i) != ',')
+                i++;
+            i++;
+            column++;
+        }
+    }
+
+    /**
+     * A reading of the log and the time it was read.
+     */
+    public static class Reading {
+        private final long value;
+        private final long ingestedAt;
+        private final long next;
+
+        private Reading(long value, long ingestedAt, long next) {
+            this.value = value;
+            this.ingestedAt = ingestedAt;
+            this.next = next;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return the System.nanoTime at which the line of the reading was read.
+         */
+        public long getIngestedAt() {
+            return ingestedAt;
+        }
+
+        /**
+         * @return the offset in the file of the line after the reading.
+         */
+        public long getNext() {
+            return next;
+        }
+    }
+
+    /**
+     * The readings of one column that have not been taken yet.
+     */
+    public class Subscription {
+        private final int column;
+        private final BlockingQueue<Reading> readings = new LinkedBlockingQueue<>();
+        private volatile Runnable onReading;
+        private volatile long position;
+
+        private Subscription(int column) {
+            this.column = column;
+            this.position = bufferOffset;
+        }
+
+        /**
+         * @return the next reading, waits until one is read if there is none.
+         */
+        public Reading take() throws InterruptedException {
+            Reading reading = readings.take();
+            position = reading.getNext();
+            return reading;
+        }
+
+        /**
+         * @param onReading is run for every new reading on the thread that follows the log, and right away if
+         *                  readings are waiting to be taken. Null stops it.
+         */
+        public void setOnReading(Runnable onReading) {
+            this.onReading = onReading;
+            if (onReading != null && !readings.isEmpty())
+                onReading.run();
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return the offset in the file of the line after the last reading that was taken.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the number of readings that are waiting to be taken.
+         */
+        public int getPending() {
+            return readings.size();
+        }
+
+        private void offer(Reading reading) {
+            readings.add(reading);
+            Runnable onReading = this.onReading;
+            if (onReading != null)
+                onReading.run();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.master_thesis.client.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A csv file of meter readings that is memory mapped instead of loaded, so files larger than the heap can be
+ * read. Every meter reads through its own cursor, which parses the integers straight from the mapped bytes
+ * without boxing or copying them. A file with several columns feeds one meter per column, lines whose value
+ * in the column is not an integer, such as a header, are skipped. A cursor starts over at the beginning of the
+ * file when it reaches the end.
+ * <p>
+ * The mapping is read only and every cursor reads at absolute positions, so one file can be shared by the
+ * cursors of all meters.
+ */
+public class MappedCsv {
+
+    // A single mapping is limited to 2 GB, larger files are mapped in segments of 1 GB. Every segment also maps
+    // the first MAX_LINE bytes of the next one, so a line that starts in a segment can be parsed from it alone.
+    private static final int SEGMENT_BITS = 30;
+    private static final int MAX_LINE = 1 << 20;
+
+    private final Path path;
+    private final long size;
+    private final int segmentBits;
+    private final long segmentMask;
+    private final int maxLine;
+    private final MappedByteBuffer[] segments;
+    private final int columns;
+    private final AtomicInteger nextColumn = new AtomicInteger();
+    private final LongAdder valuesRead = new LongAdder();
+    private final long openedAt = System.nanoTime();
+
+    private MappedCsv(Path path, int segmentBits) throws IOException {
+        this.path = path;
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1L << segmentBits) - 1;
+        this.maxLine = (int) Math.min(MAX_LINE, segmentMask + 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + segmentMask) >>> segmentBits)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << segmentBits;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentMask + 1 + maxLine, size - position));
+            }
+        }
+        columns = countColumns();
+    }
+
+    public static MappedCsv open(Path path) throws IOException {
+        return new MappedCsv(path, SEGMENT_BITS);
+    }
+
+    // Smaller segments let the tests cross segment borders without files of several GB.
+    static MappedCsv open(Path path, int segmentBits) throws IOException {
+        return new MappedCsv(path, segmentBits);
+    }
+
+    /**
+     * @param column the column the cursor reads, starting at 0.
+     * @return a cursor at the beginning of the file.
+     */
+    public Cursor cursor(int column) {
+        if (column < 0 || column >= columns)
+            throw new IllegalArgumentException(String.format("%s has no column %d, it has %d", path, column, columns));
+        return new Cursor(column);
+    }
+
+    /**
+     * @return a cursor of the next column, starting over at the first column when every column has a cursor.
+     */
+    public Cursor nextCursor() {
+        return nextCursor(0);
+    }
+
+    /**
+     * @param firstColumn the columns before it are not handed out, such as the time of a line.
+     * @return a cursor of the next column, starting over at the first column when every column has a cursor.
+     */
+    public Cursor nextCursor(int firstColumn) {
+        if (firstColumn >= columns)
+            throw new IllegalArgumentException(String.format("%s has no column %d, it has %d", path, firstColumn, columns));
+        return new Cursor(firstColumn + Math.floorMod(nextColumn.getAndIncrement(), columns - firstColumn));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of values read by all cursors of the file.
+     */
+    public long getValuesRead() {
+        return valuesRead.sum();
+    }
+
+    /**
+     * @return the values read by all cursors per second since the file was mapped.
+     */
+    public double getValuesPerSecond() {
+        return valuesRead.sum() / ((System.nanoTime() - openedAt) / 1e9);
+    }
+
+    // The columns of the first line, a header has as many columns as the values below it.
+    private int countColumns() {
+        if (size == 0)
+            return 1;
+        int columns = 1;
+        MappedByteBuffer segment = segments[0];
+        for (int i = 0; i < segment.limit(); i++) {
+            byte b = segment.get(i);
+            if (b == '\n')
+                break;
+            if (b == ',')
+                columns++;
+        }
+        return columns;
+    }
+
+    /**
+     * The read position of one meter in the file. A cursor must only be used by one thread at a time.
+     */
+    public class Cursor {
+
+        private final int column;
+        private final long[] value = new long[1];
+        private long position;
+        private long lineStart = -1;
+
+        private Cursor(int column) {
+            this.column = column;
+        }
+
+        /**
+         * @return the integer in the column of the next line that has one. Digits after a decimal point are
+         * dropped.
+         * @throws IllegalStateException if no line of the file has an integer in the column.
+         */
+        public long nextLong() {
+            // The bytes of the lines without a value, to stop once the whole file has been read.
+            long skipped = 0;
+            while (skipped < size) {
+                if (position >= size)
+                    position = 0;
+                long line = position;
+                if (parseLine(value) > 0) {
+                    valuesRead.increment();
+                    return value[0];
+                }
+                skipped += position - line;
+            }
+            throw new IllegalStateException(String.format("%s has no values in column %d", path, column));
+        }
+
+        /**
+         * Reads the column of the cursor and the columns after it from the next line that has a value in any of
+         * them. Unlike nextLong it does not start over at the end of the file.
+         *
+         * @param values the values of the line, Long.MIN_VALUE where a column has no integer.
+         * @return the number of integers in the line, 0 at the end of the file.
+         */
+        public int nextLine(long[] values) {
+            while (position < size) {
+                int read = parseLine(values);
+                if (read > 0) {
+                    valuesRead.add(read);
+                    return read;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Moves the cursor to the line at the offset, such as an offset returned by getPosition.
+         */
+        public void seek(long position) {
+            this.position = position;
+            lineStart = -1;
+        }
+
+        /**
+         * The first column of a line is its time, as yyyy-MM-dd HH:mm:ss, where the time of the day can be
+         * shortened or left out, or as seconds since the epoch. The time is read as UTC, only the differences
+         * between times are of interest.
+         *
+         * @return the time of the line that was read last in milliseconds since the epoch, Long.MIN_VALUE if the
+         * line does not start with a time.
+         */
+        public long getTimestamp() {
+            if (lineStart < 0)
+                return Long.MIN_VALUE;
+            MappedByteBuffer segment = segments[(int) (lineStart >>> segmentBits)];
+            int limit = segment.limit();
+            // year, month, day, hour, minute and second.
+            int[] fields = {0, 1, 1, 0, 0, 0};
+            int field = 0;
+            long number = 0;
+            boolean inNumber = false;
+            byte b;
+            for (int i = (int) (lineStart & segmentMask); i < limit && (b = segment.get(i)) != ',' && b != '\n'; i++) {
+                if (b >= '0' && b <= '9') {
+                    number = number * 10 + (b - '0');
+                    inNumber = true;
+                } else if (inNumber) {
+                    if (field < fields.length)
+                        fields[field] = (int) number;
+                    field++;
+                    number = 0;
+                    inNumber = false;
+                }
+            }
+            if (inNumber) {
+                if (field == 0)
+                    return number * 1000;
+                if (field < fields.length)
+                    fields[field] = (int) number;
+                field++;
+            }
+            if (field < 3)
+                return Long.MIN_VALUE;
+            try {
+                long day = LocalDate.of(fields[0], fields[1], fields[2]).toEpochDay();
+                return ((day * 24 + fields[3]) * 60 + fields[4]) * 60_000 + fields[5] * 1000L;
+            } catch (DateTimeException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+
+        /**
+         * @return true if the line that was read last starts with the prefix.
+         */
+        public boolean lineStartsWith(byte[] prefix) {
+            if (lineStart < 0 || lineStart + prefix.length > size)
+                return false;
+            MappedByteBuffer segment = segments[(int) (lineStart >>> segmentBits)];
+            int start = (int) (lineStart & segmentMask);
+            if (start + prefix.length > segment.limit())
+                return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (segment.get(start + i) != prefix[i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return the offset in the file of the line that is read next.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        // Parses the columns of the line at the position into the values and moves the position to the next line.
+        // A column that does not start with an integer gets Long.MIN_VALUE. Returns the number of integers.
+        private int parseLine(long[] values) {
+            lineStart = position;
+            int index = (int) (position >>> segmentBits);
+            MappedByteBuffer segment = segments[index];
+            int limit = segment.limit();
+            int start = (int) (position & segmentMask);
+            int i = start;
+            byte b;
+            for (int skipped = 0; skipped < column && i < limit; i++) {
+                b = segment.get(i);
+                if (b == '\n')
+                    break;
+                if (b == ',')
+                    skipped++;
+            }
+            int read = 0;
+            for (int c = 0; c < values.length; c++) {
+                values[c] = Long.MIN_VALUE;
+                if (c > 0) {
+                    if (i >= limit || segment.get(i) != ',')
+                        continue;
+                    i++;
+                }
+                while (i < limit && segment.get(i) == ' ')
+                    i++;
+                boolean negative = i < limit && segment.get(i) == '-';
+                if (negative)
+                    i++;
+                long value = 0;
+                int digits = 0;
+                while (i < limit && (b = segment.get(i)) >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    digits++;
+                    i++;
+                }
+                if (digits > 0) {
+                    values[c] = negative ? -value : value;
+                    read++;
+                }
+                // Skips what is left of the column, such as the digits after a decimal point.
+                while (i < limit && (b = segment.get(i)) != ',' && b != '\n')
+                    i++;
+            }
+            while (i < limit && segment.get(i) != '\n')
+                i++;
+            if (i == limit && ((long) index << segmentBits) + limit < size)
+                throw new IllegalStateException(String.format("%s has a line longer than %d bytes at %d", path, maxLine, position));
+            position = Math.min(position + i - start + 1, size);
+            return read;
+        }
+    }
+}
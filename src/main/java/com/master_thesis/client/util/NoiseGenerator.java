@@ -3,11 +3,19 @@ package com.master_thesis.client.util;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
-import java.util.Random;
 
+/**
+ * Gaussian noise for the Differential Privacy construction. Every thread samples from a generator of its own,
+ * so threads do not contend on a shared seed. The generator takes its random bits from the RandomWords of the
+ * thread and turns them into normal samples with the Ziggurat method, a batch of samples at a
+ * time. Single samples are taken from the batch of the thread, many readings can be given noise at once with
+ * the array methods.
+ */
 @Component
 public class NoiseGenerator {
 
+    private static final ThreadLocal<Ziggurat> samplers = ThreadLocal.withInitial(Ziggurat::new);
+
     private double gaussianVariance;
 
     public BigInteger addNoise(BigInteger input) {
@@ -15,6 +23,17 @@ public class NoiseGenerator {
         return input.add(BigInteger.valueOf(generateGaussianIntegerNoise(GAUSSIAN_MEAN, gaussianVariance)));
     }
 
+    /**
+     * Adds noise with the computed variance to every reading.
+     */
+    public void addNoise(long[] readings) {
+        double deviation = Math.sqrt(gaussianVariance);
+        Ziggurat ziggurat = sampler();
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] += Math.round(ziggurat.next() * deviation);
+        }
+    }
+
     public void computeGaussianVariance(int varianceLowerBound, int numberOfClients) {
 //        double delta = 2 / Math.exp(numberOfClients * Math.pow(epsilon, 2) / 64);
 //        numberOfClients = Math.round(64 * Math.log(2/delta)/Math.pow(epsilon,2));
@@ -23,8 +42,117 @@ public class NoiseGenerator {
 
     // This function is defined according to "Our data, ..." by C.Dwork 2006.
     public int generateGaussianIntegerNoise(double mean, double variance) {
-        Random r = new Random();
-        return (int) Math.round(r.nextGaussian() * Math.sqrt(variance) + mean);
+        return (int) Math.round(sampler().next() * Math.sqrt(variance) + mean);
+    }
+
+    /**
+     * Fills the array with integer noise, as generateGaussianIntegerNoise does for a single value.
+     */
+    public void fillGaussianIntegerNoise(long[] noise, double mean, double variance) {
+        double deviation = Math.sqrt(variance);
+        Ziggurat ziggurat = sampler();
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = Math.round(ziggurat.next() * deviation + mean);
+        }
+    }
+
+    // The sampler of the calling thread.
+    Ziggurat sampler() {
+        return samplers.get();
     }
 
+    /**
+     * The Ziggurat method of Marsaglia and Tsang with 128 layers. A sample picks a layer and a point in it from
+     * one random word, most points lie inside the layer below the curve and are returned right away. The rest
+     * are checked against the density or, in the base layer, sampled from the tail.
+     * <p>
+     * The layer is taken from the low bits of the word and the point from its high bits. The 32 bit original
+     * takes both from the same bits, which makes the samples slightly correlated with their layer.
+     */
+    static class Ziggurat {
+
+        private static final int LAYERS = 128;
+        private static final int BATCH = 256;
+        // The start of the tail and the area of a layer.
+        private static final double R = 3.442619855899;
+        private static final double AREA = 9.91256303526217e-3;
+        private static final double M = 2147483648.0;
+        private static final long[] kn = new long[LAYERS];
+        private static final double[] wn = new double[LAYERS];
+        private static final double[] fn = new double[LAYERS];
+
+        static {
+            double dn = R;
+            double tn = dn;
+            double q = AREA / Math.exp(-0.5 * dn * dn);
+            kn[0] = (long) ((dn / q) * M);
+            kn[1] = 0;
+            wn[0] = q / M;
+            wn[LAYERS - 1] = dn / M;
+            fn[0] = 1;
+            fn[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+            for (int i = LAYERS - 2; i >= 1; i--) {
+                dn = Math.sqrt(-2 * Math.log(AREA / dn + Math.exp(-0.5 * dn * dn)));
+                kn[i + 1] = (long) ((dn / tn) * M);
+                tn = dn;
+                fn[i] = Math.exp(-0.5 * dn * dn);
+                wn[i] = dn / M;
+            }
+        }
+
+        private final RandomWords words = RandomWords.current();
+        private final double[] batch = new double[BATCH];
+        private int next = BATCH;
+
+        /**
+         * @return a sample of the standard normal distribution.
+         */
+        double next() {
+            if (next == BATCH) {
+                for (int i = 0; i < BATCH; i++) {
+                    batch[i] = sample();
+                }
+                next = 0;
+            }
+            return batch[next++];
+        }
+
+        private double sample() {
+            long word = nextWord();
+            int layer = (int) (word & (LAYERS - 1));
+            int point = (int) (word >> 32);
+            if (Math.abs((long) point) < kn[layer])
+                return point * wn[layer];
+            return outside(point, layer);
+        }
+
+        private double outside(int point, int layer) {
+            while (true) {
+                double x = point * wn[layer];
+                if (layer == 0) {
+                    double y;
+                    do {
+                        x = -Math.log(uniform()) / R;
+                        y = -Math.log(uniform());
+                    } while (y + y < x * x);
+                    return point > 0 ? R + x : -R - x;
+                }
+                if (fn[layer] + uniform() * (fn[layer - 1] - fn[layer]) < Math.exp(-0.5 * x * x))
+                    return x;
+                long word = nextWord();
+                layer = (int) (word & (LAYERS - 1));
+                point = (int) (word >> 32);
+                if (Math.abs((long) point) < kn[layer])
+                    return point * wn[layer];
+            }
+        }
+
+        private double uniform() {
+            return words.nextUniform();
+        }
+
+        private long nextWord() {
+            return words.nextLong();
+        }
+    }
 }
@@ -1,49 +1,242 @@
 package com.master_thesis.client.util;
 
 
+import ch.qos.logback.classic.Logger;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.master_thesis.client.data.LinearSignatureData;
 import com.master_thesis.client.data.Server;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * The public parameters are read through an in-memory cache. The setup values of a substation (field base,
+ * generator and t) are fetched together, once per substation, and kept until they expire or are invalidated.
+ * The server list is kept as a ServerSet, which also holds the Lagrange Basis Coefficients of the servers.
+ * Concurrent misses for the same key wait for a single request to the coordinator instead of sending one each.
+ */
 @Component
 public class PublicParameters {
 
+    private static final Logger log = (Logger) LoggerFactory.getLogger(PublicParameters.class);
+    // The server list is not bound to a substation, it is stored under a single key.
+    private static final String SERVER_LIST = "servers";
+    // Bounds the stored Linear Signature public data if fids are prefetched but never used.
+    private static final int MAX_LINEAR_FIDS = 1024;
+    // The client of the Linear Signature public data that holds h for every client.
+    private static final int ANY_CLIENT = -1;
+
     private HttpAdapter httpAdapter;
+    private final AtomicLong versions = new AtomicLong();
+    private final LoadingCache<Integer, SubstationParameters> substationParameters;
+    private final LoadingCache<String, ServerSet> servers;
+    // The last fetched server set, a new fetch that returns the same servers keeps it and its coefficients.
+    private volatile ServerSet lastServerSet;
+    private final LoadingCache<Integer, BigInteger[]> rsaN;
+    // The Linear Signature public data is different for every fid, it is stored per substation, fid and, when
+    // it is scoped to clients, client. The part that is the same for every fid is stored per substation.
+    private final LoadingCache<List<Integer>, LinearSignatureData.PublicData> linearPublicData;
+    private final LoadingCache<Integer, LinearSignatureData.PublicData> linearStaticData;
+    private final ExecutorService prefetcher = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "linear-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int linearPrefetch = 4;
+    private boolean clientScopedLinear;
 
     @Autowired
-    public PublicParameters(HttpAdapter httpAdapter) {
+    public PublicParameters(HttpAdapter httpAdapter, @Value("${client.parameters.ttl-seconds:300}") long ttlSeconds) {
         this.httpAdapter = httpAdapter;
+        this.substationParameters = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(CacheLoader.from(this::fetchSubstationParameters));
+        this.servers = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(CacheLoader.from(key -> fetchServerSet()));
+        this.rsaN = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(CacheLoader.from(substationID -> httpAdapter.getRSASecretPrimes(substationID)));
+        this.linearPublicData = CacheBuilder.newBuilder()
+                .maximumSize(MAX_LINEAR_FIDS)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(CacheLoader.from(this::fetchLinearPublicData));
+        this.linearStaticData = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(CacheLoader.from(substationID -> httpAdapter.getLinearStaticData(substationID)));
+    }
+
+    /**
+     * @param linearPrefetch     the number of upcoming fids to fetch the Linear Signature public data for.
+     * @param clientScopedLinear if true, only fidPrime and the h of the client are fetched for every fid, the
+     *                           rest of the public data is fetched once per substation.
+     */
+    @Autowired
+    public void configureLinear(@Value("${client.linear.prefetch:4}") int linearPrefetch,
+                                @Value("${client.linear.client-scoped:false}") boolean clientScopedLinear) {
+        this.linearPrefetch = linearPrefetch;
+        this.clientScopedLinear = clientScopedLinear;
     }
 
     public List<Server> getServers() {
-        return httpAdapter.getServers();
+        return getServerSet().getServers();
+    }
+
+    /**
+     * @return the servers together with their Lagrange Basis Coefficients. The snapshot is only replaced when
+     * the coordinator returns a different list of servers.
+     */
+    public ServerSet getServerSet() {
+        return load(servers, SERVER_LIST);
+    }
+
+    public SubstationParameters getSubstationParameters(int substationID) {
+        return load(substationParameters, substationID);
     }
 
     public BigInteger getGenerator(int substationID) {
-        return httpAdapter.getGenerator(substationID);
+        return getSubstationParameters(substationID).getGenerator();
     }
 
 
     public BigInteger getFieldBase(int substationID) {
-        return httpAdapter.getFieldBase(substationID);
+        return getSubstationParameters(substationID).getFieldBase();
     }
 
     public int getSecurityThreshold(int substationID) {
-        return httpAdapter.getTSecurity(substationID);
+        return getSubstationParameters(substationID).getSecurityThreshold();
     }
 
-    public LinearSignatureData.PublicData getLinearPublicData(int substationID, int fid) {
-        return httpAdapter.getLinearPublicData(substationID, fid);
+    /**
+     * The public data of a fid is fetched once, both the share and the proof of the fid use the same copy.
+     */
+    public LinearSignatureData.PublicData getLinearPublicData(int substationID, int clientID, int fid) {
+        return load(linearPublicData, linearKey(substationID, clientID, fid));
+    }
+
+    /**
+     * @return N of the Linear Signature construction, which is the same for every fid and client.
+     */
+    public BigInteger getLinearN(int substationID, int fid) {
+        if (clientScopedLinear)
+            return load(linearStaticData, substationID).getN();
+        return getLinearPublicData(substationID, ANY_CLIENT, fid).getN();
+    }
 
+    /**
+     * Fetches the public data of the upcoming fids in the background, such that it is already stored when
+     * the fids are used.
+     * @param firstFid the next fid that will use the Linear Signature construction.
+     * @param stride the distance between the fids that use the construction.
+     */
+    public void prefetchLinearPublicData(int substationID, int clientID, int firstFid, int stride) {
+        for (int i = 0; i < linearPrefetch; i++) {
+            List<Integer> key = linearKey(substationID, clientID, firstFid + i * stride);
+            if (linearPublicData.getIfPresent(key) != null)
+                continue;
+            prefetcher.execute(() -> {
+                try {
+                    linearPublicData.getUnchecked(key);
+                } catch (RuntimeException e) {
+                    log.debug("Could not prefetch public data of fid {}: {}", key.get(1), e.getMessage());
+                }
+            });
+        }
     }
 
+    /**
+     * Drops the public data of a fid that has been used.
+     */
+    public void releaseLinearPublicData(int substationID, int clientID, int fid) {
+        linearPublicData.invalidate(linearKey(substationID, clientID, fid));
+    }
+
+    /**
+     * @return a copy of N and N' of the substation, the cached values are shared by every caller.
+     */
     public BigInteger[] getRsaN(int substationID) {
-        return httpAdapter.getRSASecretPrimes(substationID);
+        return load(rsaN, substationID).clone();
+    }
+
+    /**
+     * Drops everything that is cached for the substation, the next access fetches it from the coordinator again.
+     */
+    public void invalidate(int substationID) {
+        substationParameters.invalidate(substationID);
+        rsaN.invalidate(substationID);
+        linearPublicData.asMap().keySet().removeIf(key -> key.get(0) == substationID);
+        linearStaticData.invalidate(substationID);
+    }
+
+    public void invalidateServers() {
+        servers.invalidate(SERVER_LIST);
+    }
+
+    public void invalidateAll() {
+        substationParameters.invalidateAll();
+        servers.invalidateAll();
+        rsaN.invalidateAll();
+        linearPublicData.invalidateAll();
+        linearStaticData.invalidateAll();
+    }
+
+    private SubstationParameters fetchSubstationParameters(int substationID) {
+        SubstationParameters parameters = new SubstationParameters(substationID,
+                httpAdapter.getFieldBase(substationID),
+                httpAdapter.getGenerator(substationID),
+                httpAdapter.getTSecurity(substationID),
+                versions.incrementAndGet());
+        log.debug("Fetched {}", parameters);
+        return parameters;
+    }
+
+    private ServerSet fetchServerSet() {
+        List<Server> fetched = httpAdapter.getServers();
+        ServerSet previous = lastServerSet;
+        if (previous != null && previous.hasServers(fetched))
+            return previous;
+        ServerSet serverSet = new ServerSet(fetched, versions.incrementAndGet());
+        log.debug("Fetched {}", serverSet);
+        lastServerSet = serverSet;
+        return serverSet;
+    }
+
+    // Without client scoping the public data of a fid is the same for every client.
+    private List<Integer> linearKey(int substationID, int clientID, int fid) {
+        return List.of(substationID, fid, clientScopedLinear ? clientID : ANY_CLIENT);
+    }
+
+    private LinearSignatureData.PublicData fetchLinearPublicData(List<Integer> key) {
+        int substationID = key.get(0);
+        int fid = key.get(1);
+        int clientID = key.get(2);
+        if (clientID == ANY_CLIENT)
+            return httpAdapter.getLinearPublicData(substationID, fid);
+        return LinearSignatureData.PublicData.forClient(load(linearStaticData, substationID),
+                httpAdapter.getLinearClientData(substationID, clientID, fid), clientID);
+    }
+
+    // The cache wraps exceptions thrown by the loader, the original exception is rethrown so that callers
+    // can keep handling the errors from the HttpAdapter as before.
+    private static <K, V> V load(LoadingCache<K, V> cache, K key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
     }
 }
@@ -0,0 +1,177 @@
+package com.master_thesis.client.util;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.crypto.RSAKeyEpoch;
+import com.master_thesis.client.data.KeyShareEncoding;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.*;
+
+/**
+ * Hands out the key material of the Threshold Signature construction. The material of a substation is used
+ * for a number of fids or minutes, whichever ends first, and the material of the next epoch is generated in
+ * the background while the current one is in use. When an epoch ends it is replaced with the next one at once,
+ * so a share never mixes the material of two epochs.
+ * The material is also replaced as soon as the public parameters it was generated for change.
+ */
+@Component
+public class RSAKeyEpochs {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(RSAKeyEpochs.class);
+    private static final SecureRandom random = new SecureRandom();
+
+    private final PublicParameters publicParameters;
+    private final long epochFids;
+    private final long epochNanos;
+    private volatile KeyShareEncoding encoding = KeyShareEncoding.DOUBLE;
+    private final ConcurrentMap<Integer, Slot> slots = new ConcurrentHashMap<>();
+    private final ExecutorService generator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rsa-key-epoch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param epochFids    the number of fids an epoch is used for, 0 for no limit.
+     * @param epochMinutes the number of minutes an epoch is used for, 0 for no limit.
+     */
+    @Autowired
+    public RSAKeyEpochs(PublicParameters publicParameters,
+                        @Value("${client.rsa.epoch-fids:1}") long epochFids,
+                        @Value("${client.rsa.epoch-minutes:0}") long epochMinutes) {
+        this.publicParameters = publicParameters;
+        this.epochFids = epochFids;
+        this.epochNanos = TimeUnit.MINUTES.toNanos(epochMinutes);
+    }
+
+    /**
+     * Selects how the key material is generated and sent, the material of the other encoding is not used anymore.
+     */
+    @Autowired
+    public void setEncoding(@Value("${client.rsa.key-share-encoding:DOUBLE}") KeyShareEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Takes one fid of the current epoch of the substation.
+     *
+     * @return key material that was generated for the current public parameters of the substation.
+     */
+    public RSAKeyEpoch acquire(int substationID) {
+        return acquire(publicParameters.getSubstationParameters(substationID));
+    }
+
+    /**
+     * Takes one fid of the current epoch of the substation of the parameters.
+     *
+     * @return key material that was generated for these parameters and the current servers and RSA modulus.
+     */
+    public RSAKeyEpoch acquire(SubstationParameters parameters) {
+        int substationID = parameters.getSubstationID();
+        ServerSet serverSet = publicParameters.getServerSet();
+        BigInteger[] rsaN = publicParameters.getRsaN(substationID);
+        Key key = new Key(parameters.getFieldBase(), parameters.getSecurityThreshold(), serverSet, rsaN[0], rsaN[1], encoding);
+
+        Slot slot = slots.computeIfAbsent(substationID, id -> new Slot());
+        RSAKeyEpoch epoch = slot.current;
+        if (epoch == null || !key.matches(epoch) || !epoch.tryUse(nanoTime()))
+            epoch = rotate(slot, key);
+        prepareNext(slot, key);
+        return epoch;
+    }
+
+    /**
+     * Drops the material of every substation, the next acquire generates new material.
+     */
+    public void invalidateAll() {
+        slots.clear();
+    }
+
+    // Only one thread replaces the current epoch of a substation, the others wait and use the new epoch.
+    private RSAKeyEpoch rotate(Slot slot, Key key) {
+        synchronized (slot) {
+            while (true) {
+                RSAKeyEpoch epoch = slot.current;
+                if (epoch != null && key.matches(epoch) && epoch.tryUse(nanoTime()))
+                    return epoch;
+                slot.current = takeNext(slot, key);
+            }
+        }
+    }
+
+    // Uses the epoch that was generated in the background if it was generated for the same parameters,
+    // otherwise the calling thread has to generate one.
+    private RSAKeyEpoch takeNext(Slot slot, Key key) {
+        Future<RSAKeyEpoch> next = slot.next;
+        slot.next = null;
+        if (next != null) {
+            try {
+                RSAKeyEpoch epoch = next.get();
+                if (key.matches(epoch))
+                    return epoch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Could not generate the next RSA key epoch: {}", e.getCause().getMessage());
+            }
+        }
+        long start = System.nanoTime();
+        RSAKeyEpoch epoch = generate(key);
+        log.debug("Generated {} in the share path in {} ms", epoch, (System.nanoTime() - start) / 1e6);
+        return epoch;
+    }
+
+    // An epoch without limits is only replaced when the parameters change, so there is no next epoch to prepare.
+    private void prepareNext(Slot slot, Key key) {
+        if (slot.next != null || (epochFids <= 0 && epochNanos <= 0))
+            return;
+        synchronized (slot) {
+            if (slot.next == null)
+                slot.next = CompletableFuture.supplyAsync(() -> generate(key), generator);
+        }
+    }
+
+    // The clock of the time limit of the epochs.
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private RSAKeyEpoch generate(Key key) {
+        return RSAKeyEpoch.generate(key.fieldBase, key.securityThreshold, key.serverSet, key.rsaN, key.rsaNPrime, key.encoding,
+                epochFids, epochNanos, random);
+    }
+
+    private static class Slot {
+        private volatile RSAKeyEpoch current;
+        private volatile Future<RSAKeyEpoch> next;
+    }
+
+    // The public parameters the key material depends on.
+    private static class Key {
+        private final BigInteger fieldBase;
+        private final int securityThreshold;
+        private final ServerSet serverSet;
+        private final BigInteger rsaN;
+        private final BigInteger rsaNPrime;
+        private final KeyShareEncoding encoding;
+
+        private Key(BigInteger fieldBase, int securityThreshold, ServerSet serverSet, BigInteger rsaN, BigInteger rsaNPrime,
+                    KeyShareEncoding encoding) {
+            this.fieldBase = fieldBase;
+            this.securityThreshold = securityThreshold;
+            this.serverSet = serverSet;
+            this.rsaN = rsaN;
+            this.rsaNPrime = rsaNPrime;
+            this.encoding = encoding;
+        }
+
+        private boolean matches(RSAKeyEpoch epoch) {
+            return epoch.isFor(fieldBase, securityThreshold, serverSet, rsaN, rsaNPrime, encoding);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.master_thesis.client.util;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Random 64 bit words from a cryptographically strong source for the noise samplers. Every thread has a
+ * source of its own, so threads do not contend on a shared generator, and the words are drawn a few KB at a
+ * time, which is much cheaper than a call to the source per word. An instance must only be used by its thread.
+ */
+public class RandomWords {
+
+    private static final ThreadLocal<RandomWords> words = ThreadLocal.withInitial(RandomWords::new);
+
+    private final SecureRandom random = strongRandom();
+    private final byte[] bytes = new byte[8 * 512];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    private RandomWords() {
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * @return the words of the calling thread.
+     */
+    public static RandomWords current() {
+        return words.get();
+    }
+
+    public long nextLong() {
+        if (!buffer.hasRemaining()) {
+            random.nextBytes(bytes);
+            buffer.clear();
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * @return a uniform value in (0, 1], so its logarithm is finite.
+     */
+    public double nextUniform() {
+        return ((nextLong() >>> 11) + 1) * 0x1.0p-53;
+    }
+
+    // A DRBG instance has no state that is shared with other instances, the default generator may have.
+    private static SecureRandom strongRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -1,21 +1,53 @@
 package com.master_thesis.client.util;
 
+import com.master_thesis.client.differentialprivacy.DefaultPublicData;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.SecureRandom;
-import java.util.*;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 @Component
 public class Reader {
 
-    private Queue<Integer> queue;
-    private int[] staticInput;
+    // Every meter gets a column of its own when the column is ANY_COLUMN.
+    private static final int ANY_COLUMN = -1;
+
     private String filePath;
+    // The column that was chosen, null until one is chosen.
+    private Integer column;
+    private volatile MappedCsv file;
+    private MappedCsv.Cursor cursor;
+    // The readings of all meters at one time, read by readValuesMappedOnTimeFromCSV.
+    private MappedCsv.Cursor timeCursor;
+
+    private double speed = 1;
+    private volatile ReplayClock clock;
+    // The reading that is due next in replay mode, read before it is due to know when it is due.
+    private boolean pending;
+    private long pendingValue;
+    private long pendingTimestamp;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long interval;
+    // Added to the times of the file each time a replay starts over, so the times keep increasing.
+    private long shift;
+
+    private volatile LogTail tail;
+    private LogTail.Subscription subscription;
+    // The reading that was read last from the log, until its shares have been sent.
+    private LogTail.Reading lastReading;
+
+    private LoadProfile profile;
+    private LoadProfile.Meter profileMeter;
 
     private Random random = new SecureRandom();
     private BigInteger value;
@@ -27,37 +59,320 @@ public class Reader {
         bits = 10;
     }
 
-    private void initiate() {
-        try {
-            File file = new File(filePath);
-            FileReader fr = new FileReader(file);
-            BufferedReader br = new BufferedReader(fr);
-            queue = new LinkedList<>();
-            String line;
-            while ((line = br.readLine()) != null) {
-                queue.add(Integer.parseInt(line));
+    /**
+     * Creates a reader of the consumption data of the public data.
+     */
+    public Reader(DefaultPublicData publicData) {
+        this();
+        setFilePath(publicData.getDataPath());
+    }
+
+    /**
+     * Creates a reader that reads in the same way as the template, but keeps its own position.
+     * Readers of a file share the mapping of the template, readers of a replay also share its clock.
+     */
+    public Reader(Reader template) {
+        readmode = template.readmode;
+        bits = template.bits;
+        value = template.value;
+        filePath = template.filePath;
+        column = template.column;
+        speed = template.speed;
+        profile = template.profile;
+        if (readmode == ReadMode.file)
+            file = template.mapFile();
+        if (readmode == ReadMode.replay) {
+            file = template.mapFile();
+            clock = template.replayClock();
+        }
+        if (readmode == ReadMode.tail)
+            tail = template.followLog();
+    }
+
+    /**
+     * Reads the readings that are appended to the log from now on. Every copy of the reader reads a column of its
+     * own, unless a column was chosen.
+     */
+    public void setLogPath(String logPath) {
+        if (tail != null)
+            tail.close();
+        filePath = logPath;
+        readmode = ReadMode.tail;
+        tail = null;
+        subscription = null;
+        lastReading = null;
+    }
+
+    public boolean isFollowingLog() {
+        return readmode == ReadMode.tail;
+    }
+
+    /**
+     * @return the followed log of the tail mode, null until the first reading or copy of the reader follows it.
+     */
+    public LogTail getLogTail() {
+        return tail;
+    }
+
+    /**
+     * @return true if a reading of the log is waiting to be read.
+     */
+    public boolean hasPendingReading() {
+        return readmode == ReadMode.tail && subscription().getPending() > 0;
+    }
+
+    /**
+     * @param onReading is run when a reading lands in the log, on the thread that follows it, and right away if
+     *                  readings are waiting. Null stops it.
+     */
+    public void onReading(Runnable onReading) {
+        subscription().setOnReading(onReading);
+    }
+
+    /**
+     * Records that the shares of the reading that was read last have been computed and handed over to be sent,
+     * for the ingest to send latency of the followed log.
+     */
+    public void readingSent() {
+        if (lastReading != null) {
+            tail.recordSent(lastReading);
+            lastReading = null;
+        }
+    }
+
+    /**
+     * Reads the readings from the file from now on, in replay mode if the reader replays.
+     */
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+        if (readmode != ReadMode.replay)
+            readmode = ReadMode.file;
+        resetFile();
+    }
+
+    /**
+     * Replays the readings of the file at the times of their lines. The first column of the file holds the time
+     * of the line, the other columns a reading of a meter each. Unless a column was chosen, every copy of the
+     * reader replays a column of its own.
+     *
+     * @param speed how many times faster than the times of the file the readings are replayed, 0 replays them
+     *              as fast as possible.
+     */
+    public void setReplaySpeed(double speed) {
+        this.speed = speed;
+        readmode = ReadMode.replay;
+        resetFile();
+    }
+
+    /**
+     * Reads synthetic readings of the profile from now on, every copy of the reader reads the next meter of it.
+     */
+    public void setLoadProfile(LoadProfile profile) {
+        this.profile = profile;
+        profileMeter = null;
+        readmode = ReadMode.synthetic;
+    }
+
+    public boolean isReplaying() {
+        return readmode == ReadMode.replay;
+    }
+
+    /**
+     * @return the System.nanoTime at which the next reading is due in replay mode, now if the reader does not
+     * replay.
+     */
+    public long nextReadingDueAt() {
+        if (readmode != ReadMode.replay)
+            return System.nanoTime();
+        readPending();
+        return replayClock().dueAt(pendingTimestamp);
+    }
+
+    /**
+     * @return the readings of all meters at the next time of the file, one per meter column and null where a
+     * meter has no int reading at the time, null once the file has been read.
+     */
+    public LinkedList<Integer> readValuesMappedOnTimeFromCSV() {
+        long[] values = new long[mapFile().getColumns() - 1];
+        return timeCursor().nextLine(values) == 0 ? null : toList(values);
+    }
+
+    /**
+     * @param time the start of the time, such as 2020-01-09 03 for a reading in that hour.
+     * @return the readings of all meters, null where a meter has no int reading, at the next time of the file that
+     * starts with the time, starting over at the beginning of the file if there is none after the last one that was
+     * read, null if there is none.
+     * The next readings are read after the readings that were found.
+     */
+    public LinkedList<Integer> readValuesMappedOnTimeFromCSV(String time) {
+        byte[] prefix = time.getBytes(StandardCharsets.US_ASCII);
+        long[] values = new long[mapFile().getColumns() - 1];
+        MappedCsv.Cursor cursor = timeCursor();
+        long start = cursor.getPosition();
+        boolean wrapped = false;
+        while (true) {
+            if (cursor.nextLine(values) == 0) {
+                if (wrapped)
+                    break;
+                wrapped = true;
+                cursor.seek(0);
+            } else if (cursor.lineStartsWith(prefix)) {
+                return toList(values);
+            } else if (wrapped && cursor.getPosition() > start) {
+                break;
             }
-            fr.close();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        cursor.seek(start);
+        return null;
+    }
 
-        assert queue != null;
-        staticInput = queue.stream().mapToInt(Integer::intValue).toArray();
+    /**
+     * @return the file of the file mode, null until the first reading or copy of the reader has mapped it.
+     */
+    public MappedCsv getMappedFile() {
+        return file;
     }
 
-    private Integer readFromFile() {
-        if (staticInput == null)
-            initiate();
+    private synchronized MappedCsv mapFile() {
+        if (file == null) {
+            try {
+                file = MappedCsv.open(Path.of(filePath));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map " + filePath, e);
+            }
+        }
+        return file;
+    }
 
-        queue.add(queue.peek());
-        return queue.poll();
+    /**
+     * @return the offset in the file of the next reading, -1 if the reader does not read from a file.
+     */
+    public long getFilePosition() {
+        if (subscription != null)
+            return subscription.getPosition();
+        return cursor == null ? -1 : cursor.getPosition();
+    }
+
+    private synchronized LogTail followLog() {
+        if (tail == null) {
+            try {
+                tail = LogTail.follow(Path.of(filePath));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not follow " + filePath, e);
+            }
+        }
+        return tail;
+    }
+
+    private LogTail.Subscription subscription() {
+        if (subscription == null)
+            subscription = column(ANY_COLUMN) == ANY_COLUMN ? followLog().subscribeNext() : followLog().subscribe(column);
+        return subscription;
+    }
+
+    private long readFromLog() {
+        try {
+            lastReading = subscription().take();
+            return lastReading.getValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a reading of " + filePath, e);
+        }
+    }
+
+    private synchronized ReplayClock replayClock() {
+        if (clock == null)
+            clock = new ReplayClock(mapFile(), speed);
+        return clock;
+    }
+
+    private void resetFile() {
+        file = null;
+        cursor = null;
+        timeCursor = null;
+        clock = null;
+        pending = false;
+        lastTimestamp = Long.MIN_VALUE;
+        shift = 0;
+    }
+
+    private MappedCsv.Cursor timeCursor() {
+        if (timeCursor == null)
+            timeCursor = mapFile().cursor(1);
+        return timeCursor;
+    }
+
+    // Keeps the position of every meter, a column without an integer or with one that is no int gives null.
+    private static LinkedList<Integer> toList(long[] values) {
+        LinkedList<Integer> list = new LinkedList<>();
+        for (long value : values) {
+            list.add(value == (int) value ? Integer.valueOf((int) value) : null);
+        }
+        return list;
+    }
+
+    private long readFromProfile() {
+        if (profileMeter == null)
+            profileMeter = profile.nextMeter();
+        return profileMeter.nextLong();
+    }
+
+    // The chosen column, or the column of the mode if none was chosen.
+    private int column(int unset) {
+        return column == null ? unset : column;
+    }
+
+    private long readFromFile() {
+        if (cursor == null)
+            cursor = column(0) == ANY_COLUMN ? mapFile().nextCursor() : mapFile().cursor(column(0));
+        return cursor.nextLong();
+    }
+
+    // Reads the next reading of the replay and when it is due, unless it has been read already.
+    private void readPending() {
+        if (pending)
+            return;
+        if (cursor == null)
+            cursor = column(ANY_COLUMN) == ANY_COLUMN ? mapFile().nextCursor(1) : mapFile().cursor(column);
+        long value = cursor.nextLong();
+        long timestamp = cursor.getTimestamp();
+        if (timestamp == Long.MIN_VALUE)
+            throw new IllegalStateException(String.format("%s has no time at %d", filePath, cursor.getPosition()));
+        timestamp += shift;
+        if (lastTimestamp != Long.MIN_VALUE) {
+            if (timestamp < lastTimestamp) {
+                // The replay starts over, one interval after the last reading.
+                shift += lastTimestamp + interval - timestamp;
+                timestamp = lastTimestamp + interval;
+            } else {
+                interval = timestamp - lastTimestamp;
+            }
+        }
+        lastTimestamp = timestamp;
+        pendingValue = value;
+        pendingTimestamp = timestamp;
+        pending = true;
+    }
+
+    private long replayFromFile() {
+        long wait;
+        while ((wait = nextReadingDueAt() - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        pending = false;
+        return pendingValue;
     }
 
     public BigInteger readValue() {
         switch (readmode) {
             case file:
                 return BigInteger.valueOf(readFromFile());
+            case replay:
+                return BigInteger.valueOf(replayFromFile());
+            case synthetic:
+                return BigInteger.valueOf(readFromProfile());
+            case tail:
+                return BigInteger.valueOf(readFromLog());
             case value:
                 return value;
             case bits:
@@ -71,14 +386,47 @@ public class Reader {
     }
 
     public void setSecretMode(Scanner input) {
-        System.out.println("What should the secret be? [File] [Value] [Bits]");
+        System.out.println("What should the secret be? [File] [Replay] [Synthetic] [Tail] [Value] [Bits]");
         switch (input.nextLine().toLowerCase()) {
             case "f":
             case "file":
                 readmode = ReadMode.file;
                 System.out.print("Enter file path: ");
                 filePath = input.nextLine().trim();
-                staticInput = null;
+                System.out.print("Enter column [0], or 'any' to give every meter its own column: ");
+                String column = input.nextLine().trim();
+                this.column = column.isEmpty() ? 0 : column.equalsIgnoreCase("any") ? ANY_COLUMN : Integer.parseInt(column);
+                resetFile();
+                break;
+            case "r":
+            case "replay":
+                readmode = ReadMode.replay;
+                System.out.print("Enter file path: ");
+                filePath = input.nextLine().trim();
+                System.out.print("Enter column, or nothing to give every meter its own column: ");
+                String replayColumn = input.nextLine().trim();
+                this.column = replayColumn.isEmpty() ? ANY_COLUMN : Integer.parseInt(replayColumn);
+                System.out.print("Enter speed [1], or 0 to replay as fast as possible: ");
+                String speed = input.nextLine().trim();
+                this.speed = speed.isEmpty() ? 1 : Double.parseDouble(speed);
+                resetFile();
+                break;
+            case "s":
+            case "synthetic":
+                System.out.print("Enter seed [1]: ");
+                String seed = input.nextLine().trim();
+                System.out.print("Enter minutes between readings [15]: ");
+                String interval = input.nextLine().trim();
+                setLoadProfile(new LoadProfile(seed.isEmpty() ? 1 : Long.parseLong(seed), interval.isEmpty() ? 15 : Integer.parseInt(interval)));
+                break;
+            case "t":
+            case "tail":
+                System.out.print("Enter log path: ");
+                String logPath = input.nextLine().trim();
+                System.out.print("Enter column, or nothing to give every meter its own column: ");
+                String tailColumn = input.nextLine().trim();
+                this.column = tailColumn.isEmpty() ? ANY_COLUMN : Integer.parseInt(tailColumn);
+                setLogPath(logPath);
                 break;
             case "v":
             case "value":
@@ -99,6 +447,31 @@ public class Reader {
     }
 
     private enum ReadMode {
-        file, value, bits
+        file, replay, synthetic, tail, value, bits
+    }
+
+    /**
+     * Maps the times of a file to the times the readings are due. The replay starts when the first reading is
+     * due, the first time of the file is due right away.
+     */
+    private static class ReplayClock {
+        private final double speed;
+        private final long firstTimestamp;
+        private final AtomicLong start = new AtomicLong(Long.MIN_VALUE);
+
+        private ReplayClock(MappedCsv file, double speed) {
+            this.speed = speed;
+            MappedCsv.Cursor first = file.cursor(0);
+            first.nextLong();
+            this.firstTimestamp = first.getTimestamp();
+        }
+
+        // Returns the System.nanoTime at which the reading at the timestamp is due.
+        private long dueAt(long timestamp) {
+            start.compareAndSet(Long.MIN_VALUE, System.nanoTime());
+            if (speed <= 0)
+                return start.get();
+            return start.get() + (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / speed);
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.master_thesis.client.util;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What became of the requests of one fid that were sent with HttpAdapter.sendAll. The shares are reported by
+ * the keys of the map they were sent from, the nonce and the proof component on their own, so a failure is
+ * never hidden by another one to the same uri.
+ */
+public class SendReport {
+
+    private final int sent;
+    private final Map<URI, Throwable> serverFailures;
+    private final Throwable nonceFailure;
+    private final Throwable verifierFailure;
+
+    public SendReport(int sent, Map<URI, Throwable> serverFailures, Throwable nonceFailure, Throwable verifierFailure) {
+        this.sent = sent;
+        this.serverFailures = Collections.unmodifiableMap(serverFailures);
+        this.nonceFailure = nonceFailure;
+        this.verifierFailure = verifierFailure;
+    }
+
+    /**
+     * @return the number of requests that were sent, the shares, the nonce and the proof component.
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the shares that could not be delivered, in the order they were sent, mapped to the reason.
+     */
+    public Map<URI, Throwable> getServerFailures() {
+        return serverFailures;
+    }
+
+    /**
+     * @return the reason the nonce could not be delivered, null if it was acked.
+     */
+    public Throwable getNonceFailure() {
+        return nonceFailure;
+    }
+
+    /**
+     * @return the reason the proof component could not be delivered, null if it was acked.
+     */
+    public Throwable getVerifierFailure() {
+        return verifierFailure;
+    }
+
+    public int getFailureCount() {
+        return serverFailures.size() + (nonceFailure == null ? 0 : 1) + (verifierFailure == null ? 0 : 1);
+    }
+
+    /**
+     * @return true if every request of the fid was acked.
+     */
+    public boolean isDelivered() {
+        return getFailureCount() == 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.data.Server;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of the servers used in the computations, together with the Lagrange Basis Coefficient
+ * of every server. The server at index i gets i + 1 as input to the polynomial, which makes every input unique
+ * and every coefficient an integer. The coefficients only depend on the number of servers, so they are computed
+ * once per snapshot instead of once per share.
+ */
+public class ServerSet {
+
+    private final List<Server> servers;
+    private final long version;
+    private final BigInteger[] lagrangeCoefficients;
+
+    public ServerSet(List<Server> servers, long version) {
+        this.servers = List.copyOf(servers);
+        this.version = version;
+        this.lagrangeCoefficients = computeLagrangeCoefficients(this.servers.size());
+    }
+
+    public List<Server> getServers() {
+        return servers;
+    }
+
+    public int size() {
+        return servers.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the Lagrange Basis Coefficient of the server at the index, evaluated at 0.
+     */
+    public BigInteger getLagrangeCoefficient(int index) {
+        return lagrangeCoefficients[index];
+    }
+
+    /**
+     * @return the polynomial input of the server at the index.
+     */
+    public int getPolynomialInput(int index) {
+        return index + 1;
+    }
+
+    /**
+     * Checks if the servers are the same, in the same order, as in this snapshot.
+     */
+    public boolean hasServers(List<Server> other) {
+        if (other.size() != servers.size())
+            return false;
+        for (int i = 0; i < servers.size(); i++) {
+            Server server = servers.get(i);
+            if (server.getServerID() != other.get(i).getServerID() || !Objects.equals(server.getUri(), other.get(i).getUri()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the Lagrange Basis Coefficient for every input 1..m. For input j it is the product of all other
+     * inputs x divided by the product of all (x - j), the division is exact.
+     */
+    static BigInteger[] computeLagrangeCoefficients(int m) {
+        BigInteger[] coefficients = new BigInteger[m];
+        for (int j = 1; j <= m; j++) {
+            BigInteger nominator = BigInteger.ONE;
+            BigInteger denominator = BigInteger.ONE;
+            for (int x = 1; x <= m; x++) {
+                if (x == j)
+                    continue;
+                nominator = nominator.multiply(BigInteger.valueOf(x));
+                denominator = denominator.multiply(BigInteger.valueOf(x - j));
+            }
+            coefficients[j - 1] = nominator.divide(denominator);
+        }
+        return coefficients;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerSet{" +
+                "servers=" + servers.size() +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.master_thesis.client.util;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.data.BatchEnvelope;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Collects the payloads going to the same destination (scheme and authority) and sends them together in a
+ * BatchEnvelope to the batch endpoint of that destination. A batch is sent when it is full or when its oldest
+ * payload has waited for the maximum delay, whichever happens first.
+ * <p>
+ * Once closed, the batches that are waiting are sent and its timer thread is stopped. Payloads added after
+ * that are sent on their own.
+ */
+class ShareBatcher implements Closeable {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(ShareBatcher.class);
+    private static final String BATCH_ENDPOINT = "/api/batch";
+
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final BiFunction<URI, Object, CompletableFuture<URI>> sender;
+    private final Map<URI, Batch> pending = new HashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "share-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Guarded by pending.
+    private boolean closed;
+
+    /**
+     * @param sender sends a single request and completes with the destination when it has been acked.
+     */
+    ShareBatcher(int maxBatchSize, long maxDelayMs, BiFunction<URI, Object, CompletableFuture<URI>> sender) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.sender = sender;
+    }
+
+    /**
+     * Adds a payload to the batch of its destination.
+     * @return a future that completes with the uri when the batch containing the payload has been acked.
+     */
+    CompletableFuture<URI> add(URI uri, Object payload) {
+        URI destination = uri.resolve(BATCH_ENDPOINT);
+        CompletableFuture<URI> ack = new CompletableFuture<>();
+        Batch full = null;
+        boolean alone;
+        synchronized (pending) {
+            alone = closed;
+            if (!alone) {
+                Batch batch = pending.computeIfAbsent(destination, key -> new Batch());
+                if (batch.timeout == null)
+                    batch.timeout = timer.schedule(() -> flush(destination), maxDelayMs, TimeUnit.MILLISECONDS);
+                batch.envelope.add(uri.getPath(), payload);
+                batch.acks.add(ack);
+                batch.uris.add(uri);
+                if (batch.envelope.size() >= maxBatchSize)
+                    full = pending.remove(destination);
+            }
+        }
+        if (alone)
+            return sender.apply(uri, payload);
+        if (full != null)
+            send(destination, full);
+        return ack;
+    }
+
+    void flush(URI destination) {
+        Batch batch;
+        synchronized (pending) {
+            batch = pending.remove(destination);
+        }
+        if (batch != null)
+            send(destination, batch);
+    }
+
+    void flushAll() {
+        List<URI> destinations;
+        synchronized (pending) {
+            destinations = new ArrayList<>(pending.keySet());
+        }
+        destinations.forEach(this::flush);
+    }
+
+    /**
+     * Sends the batches that are waiting and stops the timer.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+        }
+        flushAll();
+        timer.shutdown();
+    }
+
+    boolean isClosed() {
+        return timer.isShutdown();
+    }
+
+    private void send(URI destination, Batch batch) {
+        batch.timeout.cancel(false);
+        log.debug("Sending batch of {} to {}", batch.envelope.size(), destination);
+        sender.apply(destination, batch.envelope).whenComplete((uri, e) -> {
+            for (int i = 0; i < batch.acks.size(); i++) {
+                if (e == null)
+                    batch.acks.get(i).complete(batch.uris.get(i));
+                else
+                    batch.acks.get(i).completeExceptionally(new DeliveryException(batch.uris.get(i), e));
+            }
+        });
+    }
+
+    private static class Batch {
+        private final BatchEnvelope envelope = new BatchEnvelope();
+        private final List<CompletableFuture<URI>> acks = new ArrayList<>();
+        private final List<URI> uris = new ArrayList<>();
+        private ScheduledFuture<?> timeout;
+    }
+}
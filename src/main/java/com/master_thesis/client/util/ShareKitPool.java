@@ -0,0 +1,129 @@
+package com.master_thesis.client.util;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.crypto.ShareKit;
+import com.master_thesis.client.data.ShareMode;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Share kits of the Homomorphic Hash and Differential Privacy constructions that are prepared ahead of the
+ * readings. A bounded number of kits is kept per substation and share mode. When a take leaves no more than
+ * the refill threshold, the pool is filled up again on a low priority thread, so the kits are prepared while
+ * the meter waits for its next reading. If no kit for the current public parameters is left the share is
+ * computed from a kit that is generated on the spot.
+ */
+@Component
+public class ShareKitPool {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(ShareKitPool.class);
+    private static final SecureRandom random = new SecureRandom();
+
+    private final int poolSize;
+    private final int refillThreshold;
+    private final ConcurrentMap<List<Object>, Kits> pools = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "share-kit-refill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * @param poolSize        the number of kits kept per substation and share mode, 0 disables the pool.
+     * @param refillThreshold the pool is refilled when a take leaves this many kits or fewer.
+     */
+    @Autowired
+    public ShareKitPool(@Value("${client.share-kit.pool-size:32}") int poolSize,
+                        @Value("${client.share-kit.refill-threshold:8}") int refillThreshold) {
+        this.poolSize = poolSize;
+        this.refillThreshold = Math.min(refillThreshold, poolSize);
+    }
+
+    /**
+     * Takes a kit for the public parameters. A kit that is taken is not handed out again.
+     */
+    public ShareKit take(int substationID, BigInteger fieldBase, BigInteger generator, int securityThreshold, ServerSet serverSet, ShareMode shareMode) {
+        if (poolSize <= 0)
+            return ShareKit.generate(fieldBase, generator, securityThreshold, serverSet, shareMode, random);
+        Kits kits = pools.computeIfAbsent(List.of(substationID, shareMode), key -> new Kits(poolSize));
+        ShareKit kit;
+        // Kits for parameters that have changed since they were prepared are dropped.
+        while ((kit = kits.queue.poll()) != null && !kit.isFor(fieldBase, generator, securityThreshold, serverSet, shareMode)) {
+            log.debug("Dropped a share kit for old public parameters of substation {}", substationID);
+        }
+        if (kits.queue.size() <= refillThreshold)
+            refill(kits, fieldBase, generator, securityThreshold, serverSet, shareMode);
+        if (kit != null) {
+            hits.increment();
+            return kit;
+        }
+        misses.increment();
+        return ShareKit.generate(fieldBase, generator, securityThreshold, serverSet, shareMode, random);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of takes that got a prepared kit, 0 if nothing was taken.
+     */
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    // The refill of a pool fills it up to its size.
+    boolean isFull(int substationID, ShareMode shareMode) {
+        Kits kits = pools.get(List.of(substationID, shareMode));
+        return kits != null && kits.queue.remainingCapacity() == 0;
+    }
+
+    public void invalidateAll() {
+        pools.values().forEach(kits -> kits.queue.clear());
+    }
+
+    // At most one refill per pool is queued or running.
+    private void refill(Kits kits, BigInteger fieldBase, BigInteger generator, int securityThreshold, ServerSet serverSet, ShareMode shareMode) {
+        if (!kits.refilling.compareAndSet(false, true))
+            return;
+        refiller.execute(() -> {
+            try {
+                while (kits.queue.remainingCapacity() > 0) {
+                    kits.queue.offer(ShareKit.generate(fieldBase, generator, securityThreshold, serverSet, shareMode, random));
+                }
+                log.debug("Refilled {} share kits, hit rate {}", shareMode, getHitRate());
+            } catch (RuntimeException e) {
+                log.error("Could not prepare share kits: {}", e.getMessage());
+            } finally {
+                kits.refilling.set(false);
+            }
+        });
+    }
+
+    private static class Kits {
+        private final BlockingQueue<ShareKit> queue;
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private Kits(int poolSize) {
+            this.queue = new ArrayBlockingQueue<>(poolSize);
+        }
+    }
+}
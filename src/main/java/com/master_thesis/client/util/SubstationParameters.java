@@ -0,0 +1,56 @@
+package com.master_thesis.client.util;
+
+import java.math.BigInteger;
+
+/**
+ * An immutable snapshot of the public parameters of one substation.
+ * Every time the parameters are fetched from the coordinator the snapshot gets a new version, which makes it
+ * possible for anything derived from the parameters to detect that it is outdated.
+ */
+public class SubstationParameters {
+
+    private final int substationID;
+    private final BigInteger fieldBase;
+    private final BigInteger generator;
+    private final int securityThreshold;
+    private final long version;
+
+    public SubstationParameters(int substationID, BigInteger fieldBase, BigInteger generator, int securityThreshold, long version) {
+        this.substationID = substationID;
+        this.fieldBase = fieldBase;
+        this.generator = generator;
+        this.securityThreshold = securityThreshold;
+        this.version = version;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public BigInteger getFieldBase() {
+        return fieldBase;
+    }
+
+    public BigInteger getGenerator() {
+        return generator;
+    }
+
+    public int getSecurityThreshold() {
+        return securityThreshold;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "SubstationParameters{" +
+                "substationID=" + substationID +
+                ", fieldBase=" + fieldBase +
+                ", generator=" + generator +
+                ", securityThreshold=" + securityThreshold +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.master_thesis.client;
+
+import com.master_thesis.client.differentialprivacy.NoiseMechanism;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DifferentialPrivacyTest {
+
+    @Test
+    void laplaceNoiseIsAddedToSecretsLongerThanALong() {
+        DifferentialPrivacy differentialPrivacy = new DifferentialPrivacy(null, null, null);
+        differentialPrivacy.setMechanism(NoiseMechanism.LAPLACE);
+        BigInteger secret = BigInteger.ONE.shiftLeft(100);
+        // The default scale is 16, noise beyond 50 times the scale is not drawn in practice.
+        BigInteger noise = differentialPrivacy.addNoise(secret).subtract(secret);
+        assertTrue(noise.abs().compareTo(BigInteger.valueOf(16 * 50)) < 0, "noise " + noise);
+    }
+}
@@ -2,9 +2,13 @@ package com.master_thesis.client;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.master_thesis.client.data.HomomorphicHashData;
 import com.master_thesis.client.data.Server;
+import com.master_thesis.client.data.ShareMode;
 import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.ServerSet;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
 import org.slf4j.LoggerFactory;
@@ -14,6 +18,10 @@ import java.net.URI;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 class HomomorphicHashTest {
 
     PublicParameters pp;
@@ -37,17 +45,40 @@ class HomomorphicHashTest {
         }
 
         pp = Mockito.mock(PublicParameters.class);
-        Mockito.when(pp.getSubstationID()).thenReturn(0);
         Mockito.when(pp.getGenerator(Mockito.anyInt())).thenReturn(generator);
         Mockito.when(pp.getFieldBase(Mockito.anyInt())).thenReturn(prime);
-        Mockito.when(pp.getServers()).thenReturn(serverList);
-        Mockito.when(pp.getSecurityThreshold()).thenReturn(tSecurity);
+        Mockito.when(pp.getServerSet()).thenReturn(new ServerSet(serverList, 1));
+        Mockito.when(pp.getSecurityThreshold(Mockito.anyInt())).thenReturn(tSecurity);
 
-        hh = new HomomorphicHash(pp, null);
+        hh = new HomomorphicHash(pp);
     }
 
     @org.junit.jupiter.api.Test
     void shareSecret() {
-        HomomorphicHashData res = hh.shareSecret(BigInteger.ZERO);
+        HomomorphicHashData res = hh.shareSecret(BigInteger.ZERO, 0);
+        assertEquals(10, res.getServerData().size());
+    }
+
+    @org.junit.jupiter.api.Test
+    void fieldSharesAreReduced() {
+        BigInteger prime = pp.getFieldBase(0);
+        hh.setShareMode(ShareMode.FIELD);
+        HomomorphicHashData res = hh.shareSecret(BigInteger.valueOf(1234), 0);
+        res.getServerData().values().forEach(data -> {
+            assertEquals(ShareMode.FIELD, data.getShareMode());
+            assertTrue(data.getSecretShare().signum() >= 0);
+            assertTrue(data.getSecretShare().compareTo(prime) < 0);
+        });
+    }
+
+    @org.junit.jupiter.api.Test
+    void onlyFieldSharesCarryTheirMode() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HomomorphicHashData.ServerData integerShare = hh.shareSecret(BigInteger.ONE, 0).getServerData().values().iterator().next();
+        assertFalse(objectMapper.writeValueAsString(integerShare).contains("shareMode"));
+
+        hh.setShareMode(ShareMode.FIELD);
+        HomomorphicHashData.ServerData fieldShare = hh.shareSecret(BigInteger.ONE, 0).getServerData().values().iterator().next();
+        assertTrue(objectMapper.writeValueAsString(fieldShare).contains("\"shareMode\":\"FIELD\""));
     }
-}
\ No newline at end of file
+}
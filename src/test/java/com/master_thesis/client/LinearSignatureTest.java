@@ -0,0 +1,105 @@
+package com.master_thesis.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.data.LinearSignatureData;
+import com.master_thesis.client.data.LinearSignatureData.PublicData;
+import com.master_thesis.client.data.Server;
+import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.ServerSet;
+import com.master_thesis.client.util.SubstationParameters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LinearSignatureTest {
+
+    private static final int CLIENT_ID = 1;
+    private PublicData publicData;
+    private LinearSignature linearSignature;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(LinearSignature.class)).setLevel(Level.OFF);
+        Random random = new Random(8);
+        BigInteger n = BigInteger.probablePrime(64, random);
+        BigInteger fidPrime = BigInteger.probablePrime(65, random);
+        BigInteger eN = n.multiply(fidPrime);
+        BigInteger p, q;
+        do {
+            p = BigInteger.probablePrime(256, random);
+            q = BigInteger.probablePrime(256, random);
+        } while (!eN.gcd(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE))).equals(BigInteger.ONE));
+        BigInteger nRoof = p.multiply(q);
+        BigInteger[] h = {new BigInteger(500, random), new BigInteger(500, random)};
+        publicData = new PublicData(n, nRoof, fidPrime, new BigInteger(500, random), new BigInteger(500, random), h, new BigInteger[]{p, q});
+
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        ServerSet serverSet = new ServerSet(servers, 1);
+        linearSignature = new LinearSignature(new PublicParameters(null, 300) {
+            @Override
+            public ServerSet getServerSet() {
+                return serverSet;
+            }
+
+            @Override
+            public SubstationParameters getSubstationParameters(int substationID) {
+                return new SubstationParameters(substationID, n, BigInteger.TWO, 2, 1);
+            }
+
+            @Override
+            public PublicData getLinearPublicData(int substationID, int clientID, int fid) {
+                return publicData;
+            }
+
+            @Override
+            public BigInteger getLinearN(int substationID, int fid) {
+                return n;
+            }
+        });
+    }
+
+    /**
+     * The partial proof satisfies x^(eN) = g1^s * h * g2^(nonce + secret) mod NRoof, whether it was prepared
+     * before the reading or not.
+     */
+    @Test
+    void preparedAndOnlineProofsVerify() {
+        BigInteger secret = BigInteger.valueOf(4711);
+        assertVerifies(prove(secret), secret);
+        assertEquals(0, linearSignature.getPreparedProofs());
+        linearSignature.prepareProof(0, CLIENT_ID, 7);
+        assertVerifies(prove(secret), secret);
+        assertEquals(1, linearSignature.getPreparedProofs());
+    }
+
+    private LinearSignatureData prove(BigInteger secret) {
+        LinearSignatureData data = linearSignature.shareSecret(secret, 7, 0, CLIENT_ID);
+        data.setFid(7).setClientID(CLIENT_ID).setSubstationID(0);
+        return linearSignature.partialProof(data, secret);
+    }
+
+    private void assertVerifies(LinearSignatureData data, BigInteger secret) {
+        BigInteger nRoof = publicData.getNRoof();
+        BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
+        BigInteger expected = publicData.getG1().modPow(data.getVerifierData().getsShare(), nRoof)
+                .multiply(publicData.getH()[CLIENT_ID])
+                .multiply(publicData.getG2().modPow(data.getNonceData().getNonce().add(secret), nRoof))
+                .mod(nRoof);
+        assertEquals(expected, data.getVerifierData().getX().modPow(eN, nRoof));
+    }
+}
@@ -0,0 +1,155 @@
+package com.master_thesis.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.crypto.IntegerMatrix;
+import com.master_thesis.client.data.KeyShareEncoding;
+import com.master_thesis.client.data.RSAThresholdData;
+import com.master_thesis.client.data.RSAThresholdData.ServerData;
+import com.master_thesis.client.data.Server;
+import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.RSAKeyEpochs;
+import com.master_thesis.client.util.ServerSet;
+import com.master_thesis.client.util.SubstationParameters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RSAThresholdTest {
+
+    private static final BigInteger FIELD = BigInteger.valueOf(65537);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(3);
+    private static final int T = 3;
+    // N = (2p'+1)(2q'+1) and N' = p'q' with p' = 11 and q' = 23.
+    private static final BigInteger[] RSA_N = {BigInteger.valueOf(23 * 47), BigInteger.valueOf(11 * 23)};
+
+    private PublicParameters publicParameters;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(RSAThreshold.class)).setLevel(Level.OFF);
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        ServerSet serverSet = new ServerSet(servers, 1);
+        publicParameters = new PublicParameters(null, 300) {
+            @Override
+            public ServerSet getServerSet() {
+                return serverSet;
+            }
+
+            @Override
+            public SubstationParameters getSubstationParameters(int substationID) {
+                return new SubstationParameters(substationID, FIELD, GENERATOR, T, 1);
+            }
+
+            @Override
+            public BigInteger[] getRsaN(int substationID) {
+                return RSA_N;
+            }
+        };
+    }
+
+    /**
+     * Shares from many threads at once, with epochs short enough that they are replaced while other threads
+     * share. Every result has to be consistent in itself: the shares add up to its secret, tau matches its
+     * nonce and the secret key shares belong to its matrix and public key.
+     */
+    @Test
+    void concurrentSharesStayConsistent() throws Exception {
+        RSAKeyEpochs keyEpochs = new RSAKeyEpochs(publicParameters, 2, 0);
+        keyEpochs.setEncoding(KeyShareEncoding.EXACT);
+        RSAThreshold rsaThreshold = new RSAThreshold(publicParameters, keyEpochs);
+        int threads = 8;
+        int sharesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < threads; thread++) {
+                int first = thread * sharesPerThread;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < sharesPerThread; i++) {
+                        BigInteger secret = BigInteger.valueOf(1000 + first + i);
+                        assertConsistent(secret, rsaThreshold.shareSecret(secret, 0));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * By default the key material is sent in the double format the servers read, without the exact fields.
+     */
+    @Test
+    void sendsTheDoubleFormatByDefault() {
+        RSAThreshold rsaThreshold = new RSAThreshold(publicParameters, new RSAKeyEpochs(publicParameters, 1, 0));
+        for (ServerData server : rsaThreshold.shareSecret(BigInteger.TEN, 0).getServerData().values()) {
+            assertNotNull(server.getSkShare());
+            assertNotNull(server.getMatrixOfClient());
+            assertNull(server.getExactSkShare());
+            assertNull(server.getExactMatrixOfClient());
+        }
+    }
+
+    private static void assertConsistent(BigInteger secret, RSAThresholdData data) {
+        List<ServerData> serverData = new ArrayList<>(data.getServerData().values());
+        assertEquals(6, serverData.size());
+        BigInteger[][] matrix = serverData.get(0).getExactMatrixOfClient();
+        BigInteger[] skShares = serverData.get(0).getExactSkShare();
+        BigInteger sum = BigInteger.ZERO;
+        for (ServerData server : serverData) {
+            assertArrayEquals(matrix, server.getExactMatrixOfClient());
+            assertArrayEquals(skShares, server.getExactSkShare());
+            assertEquals(RSA_N[0], server.getRsaN());
+            assertEquals(data.getVerifierData().getProofComponent(), server.getProofComponent());
+            sum = sum.add(server.getShare());
+        }
+        // The Lagrange Coefficients of all servers reconstruct the polynomial at 0, which is the secret.
+        assertEquals(secret, sum);
+        assertEquals(GENERATOR.modPow(secret.add(data.getNonceData().getNonce()), FIELD), data.getVerifierData().getProofComponent());
+
+        // Every secret key share is A * skv, so the private key is skv[0] = det(A_t with skShares in column 0) / det(A_t)
+        // by Cramer's rule, and it has to be the inverse of the public key modulo 2N'.
+        IntegerMatrix leading = new IntegerMatrix(Arrays.copyOf(matrix, T));
+        BigInteger[][] replaced = leading.toArray();
+        for (int row = 0; row < T; row++) {
+            replaced[row][0] = skShares[row];
+        }
+        BigInteger[] quotient = new IntegerMatrix(replaced).determinant().divideAndRemainder(leading.determinant());
+        assertEquals(BigInteger.ZERO, quotient[1]);
+        BigInteger rsaNPrimeTwo = RSA_N[1].shiftLeft(1);
+        assertEquals(BigInteger.ONE, data.getVerifierData().getPublicKey().multiply(quotient[0]).mod(rsaNPrimeTwo));
+
+        // The remaining secret key shares are the products of the remaining rows with the same vector.
+        BigInteger[][] augmented = new BigInteger[matrix.length][];
+        for (int row = 0; row < matrix.length; row++) {
+            augmented[row] = Arrays.copyOf(matrix[row], T + 1);
+            augmented[row][T] = skShares[row];
+        }
+        assertEquals(T, new IntegerMatrix(augmented).rank());
+    }
+}
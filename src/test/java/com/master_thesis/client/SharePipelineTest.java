@@ -0,0 +1,75 @@
+package com.master_thesis.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.data.*;
+import com.master_thesis.client.util.HttpAdapter;
+import com.master_thesis.client.util.PublicParameters;
+import com.master_thesis.client.util.Reader;
+import com.master_thesis.client.util.SendReport;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharePipelineTest {
+
+    private static final URI DP_SERVER = URI.create("http://localhost:2000/api/" + Construction.DP.getEndpoint());
+
+    /**
+     * A substation without RSA primes still uses up the fid of the RSA construction, so the constructions that
+     * follow keep the fids that the prefetching expects.
+     */
+    @Test
+    void rsaUsesItsFidWhenItCanNotRun() throws Exception {
+        ((Logger) LoggerFactory.getLogger(SharePipeline.class)).setLevel(Level.OFF);
+        List<Integer> fidUpdates = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> sentFids = Collections.synchronizedList(new ArrayList<>());
+        HttpAdapter httpAdapter = new HttpAdapter() {
+            @Override
+            public CompletableFuture<SendReport> sendAll(Map<URI, ? extends ComputationData> serverData, Object nonceData, ComputationData verifierData) {
+                sentFids.add(verifierData.getFid());
+                return CompletableFuture.completedFuture(new SendReport(serverData.size() + 2, Map.of(), null, null));
+            }
+
+            @Override
+            public CompletableFuture<URI> updateFidAsync(int substationID, int clientID, int fid) {
+                fidUpdates.add(fid);
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        PublicParameters publicParameters = new PublicParameters(httpAdapter, 300) {
+            @Override
+            public BigInteger[] getRsaN(int substationID) {
+                throw new RuntimeException("RSA primes could not be retrieved.");
+            }
+        };
+        DifferentialPrivacy differentialPrivacy = new DifferentialPrivacy(null, null, null) {
+            @Override
+            public DifferentialPrivacyData shareSecret(BigInteger secret, int substationID) {
+                return new DifferentialPrivacyData(Map.of(DP_SERVER, secret), BigInteger.ONE, BigInteger.TWO);
+            }
+        };
+        SharePipeline sharePipeline = new SharePipeline(null, null, null, differentialPrivacy, httpAdapter, publicParameters);
+        ClientStartupData startupData = new ClientStartupData();
+        startupData.setStartFid(10);
+        MeterState meter = new MeterState(startupData, new Reader());
+
+        List<Construction> constructions = List.of(Construction.RSA, Construction.DP);
+        assertEquals(Integer.valueOf(1), sharePipeline.sendShare(meter, BigInteger.TEN, constructions).get(10, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), sharePipeline.sendShare(meter, BigInteger.TEN, constructions).get(10, TimeUnit.SECONDS));
+        // Both readings used two fids, the RSA fids 10 and 12 went unused.
+        assertEquals(List.of(11, 13), sentFids);
+        assertEquals(List.of(11, 12, 13, 14), fidUpdates);
+        assertEquals(14, meter.getFid());
+    }
+}
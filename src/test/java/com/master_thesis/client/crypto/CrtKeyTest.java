@@ -0,0 +1,36 @@
+package com.master_thesis.client.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrtKeyTest {
+
+    @Test
+    void rootMatchesFullModulus() {
+        Random random = new Random(11);
+        BigInteger e = BigInteger.probablePrime(40, random);
+        BigInteger p, q;
+        do {
+            p = BigInteger.probablePrime(256, random);
+            q = BigInteger.probablePrime(256, random);
+        } while (!e.gcd(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE))).equals(BigInteger.ONE));
+        BigInteger n = p.multiply(q);
+        BigInteger totient = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        CrtKey crtKey = new CrtKey(p, q);
+        for (int i = 0; i < 20; i++) {
+            BigInteger value = new BigInteger(511, random);
+            BigInteger x = crtKey.root(value, e);
+            assertEquals(value.modPow(e.modInverse(totient), n), x);
+            assertEquals(value.mod(n), x.modPow(e, n));
+        }
+        assertTrue(CrtKey.isFactorization(n, new BigInteger[]{p, q}));
+        assertFalse(CrtKey.isFactorization(n, new BigInteger[]{p, p}));
+        assertFalse(CrtKey.isFactorization(n, null));
+    }
+}
@@ -0,0 +1,37 @@
+package com.master_thesis.client.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FixedBaseExponentiationTest {
+
+    private final Random random = new Random(3);
+
+    @Test
+    void matchesModPow() {
+        for (int bits : new int[]{31, 107, 600}) {
+            BigInteger modulus = BigInteger.probablePrime(bits, random);
+            BigInteger base = new BigInteger(bits - 1, random);
+            for (int i = 0; i < 50; i++) {
+                BigInteger exponent = new BigInteger(bits + 1, random);
+                assertEquals(base.modPow(exponent, modulus), FixedBaseExponentiation.modPow(base, exponent, modulus, bits + 1));
+            }
+            assertEquals(BigInteger.ONE, FixedBaseExponentiation.modPow(base, BigInteger.ZERO, modulus, bits + 1));
+        }
+    }
+
+    @Test
+    void fallsBackOutsideTheTable() {
+        BigInteger modulus = BigInteger.ONE.shiftLeft(107).subtract(BigInteger.ONE);
+        BigInteger base = BigInteger.valueOf(191);
+        FixedBaseExponentiation table = new FixedBaseExponentiation(base, modulus, 64, 6);
+        BigInteger large = BigInteger.ONE.shiftLeft(200).add(BigInteger.TEN);
+        BigInteger negative = BigInteger.valueOf(-12345);
+        assertEquals(base.modPow(large, modulus), table.pow(large));
+        assertEquals(base.modPow(negative, modulus), table.pow(negative));
+    }
+}
@@ -0,0 +1,89 @@
+package com.master_thesis.client.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntegerMatrixTest {
+
+    private final Random random = new Random(5);
+
+    @Test
+    void determinantMatchesCofactorExpansion() {
+        for (int size = 1; size <= 6; size++) {
+            BigInteger[][] values = randomValues(size, size, 1000);
+            assertEquals(cofactorDeterminant(values), new IntegerMatrix(values).determinant());
+        }
+    }
+
+    @Test
+    void randomFullRankHasInvertibleLeadingBlock() {
+        for (BigInteger modulus : new BigInteger[]{BigInteger.TWO, BigInteger.valueOf(3), BigInteger.valueOf(65537)}) {
+            for (int columns = 1; columns <= 8; columns++) {
+                IntegerMatrix matrix = IntegerMatrix.randomFullRank(columns + 3, columns, modulus, random);
+                assertEquals(columns, matrix.rank());
+                assertNotEquals(BigInteger.ZERO, matrix.leadingDeterminant().mod(modulus));
+                for (int row = 0; row < matrix.getRows(); row++) {
+                    for (int col = 0; col < columns; col++) {
+                        assertTrue(matrix.get(row, col).signum() >= 0 && matrix.get(row, col).compareTo(modulus) < 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rankOfDependentRows() {
+        BigInteger[][] values = randomValues(6, 4, 100);
+        // The last two rows are combinations of the first two.
+        for (int col = 0; col < 4; col++) {
+            values[4][col] = values[0][col].add(values[1][col]);
+            values[5][col] = values[0][col].multiply(BigInteger.valueOf(3)).subtract(values[1][col]);
+        }
+        IntegerMatrix matrix = new IntegerMatrix(values);
+        assertEquals(4, matrix.rank());
+        IntegerMatrix dependent = new IntegerMatrix(new BigInteger[][]{values[0], values[1], values[4], values[5]});
+        assertEquals(2, dependent.rank());
+        assertEquals(BigInteger.ZERO, dependent.determinant());
+    }
+
+    @Test
+    void productIsExactPastDoublePrecision() {
+        BigInteger large = BigInteger.ONE.shiftLeft(80).add(BigInteger.ONE);
+        IntegerMatrix matrix = new IntegerMatrix(new BigInteger[][]{{BigInteger.valueOf(3), BigInteger.ONE}});
+        BigInteger[] product = matrix.multiply(new BigInteger[]{large, BigInteger.ONE});
+        assertEquals(large.multiply(BigInteger.valueOf(3)).add(BigInteger.ONE), product[0]);
+    }
+
+    private BigInteger[][] randomValues(int rows, int columns, int bound) {
+        BigInteger[][] values = new BigInteger[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                values[row][col] = BigInteger.valueOf(random.nextInt(bound));
+            }
+        }
+        return values;
+    }
+
+    private static BigInteger cofactorDeterminant(BigInteger[][] values) {
+        int size = values.length;
+        if (size == 1)
+            return values[0][0];
+        BigInteger determinant = BigInteger.ZERO;
+        for (int col = 0; col < size; col++) {
+            BigInteger[][] minor = new BigInteger[size - 1][size - 1];
+            for (int row = 1; row < size; row++) {
+                for (int c = 0, m = 0; c < size; c++) {
+                    if (c != col)
+                        minor[row - 1][m++] = values[row][c];
+                }
+            }
+            BigInteger term = values[0][col].multiply(cofactorDeterminant(minor));
+            determinant = col % 2 == 0 ? determinant.add(term) : determinant.subtract(term);
+        }
+        return determinant;
+    }
+}
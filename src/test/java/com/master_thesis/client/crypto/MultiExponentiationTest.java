@@ -0,0 +1,35 @@
+package com.master_thesis.client.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MultiExponentiationTest {
+
+    private final Random random = new Random(19);
+
+    @Test
+    void productMatchesModPow() {
+        BigInteger n = BigInteger.probablePrime(256, random).multiply(BigInteger.probablePrime(256, random));
+        BigInteger a = new BigInteger(500, random);
+        BigInteger b = new BigInteger(500, random);
+        for (int i = 0; i < 50; i++) {
+            BigInteger x = new BigInteger(215, random);
+            BigInteger y = new BigInteger(108, random);
+            assertEquals(a.modPow(x, n).multiply(b.modPow(y, n)).mod(n), MultiExponentiation.modPow(a, x, 215, b, y, 108, n));
+        }
+    }
+
+    @Test
+    void exponentsOutsideTheTablesFallBack() {
+        BigInteger n = BigInteger.probablePrime(128, random);
+        BigInteger a = BigInteger.valueOf(7);
+        BigInteger b = BigInteger.valueOf(11);
+        BigInteger x = new BigInteger(100, random);
+        BigInteger y = BigInteger.valueOf(-12345);
+        assertEquals(a.modPow(x, n).multiply(b.modPow(y, n)).mod(n), MultiExponentiation.modPow(a, x, 64, b, y, 64, n));
+    }
+}
@@ -0,0 +1,66 @@
+package com.master_thesis.client.crypto;
+
+import com.master_thesis.client.data.ShareMode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolynomialTest {
+
+    private static final BigInteger FIELD = BigInteger.ONE.shiftLeft(107).subtract(BigInteger.ONE);
+    private static final int SERVERS = 10;
+    private final Random random = new Random(7);
+
+    @Test
+    void hornerMatchesPowerSum() {
+        BigInteger secret = BigInteger.valueOf(4711);
+        Polynomial polynomial = Polynomial.random(secret, FIELD, 5, random);
+        // Evaluate the polynomial term by term.
+        BigInteger[] coefficients = polynomial.getCoefficients();
+        assertEquals(5, coefficients.length);
+        for (long x = 1; x <= SERVERS; x++) {
+            BigInteger expected = secret;
+            for (int i = 0; i < coefficients.length; i++) {
+                expected = expected.add(coefficients[i].multiply(BigInteger.valueOf(x).pow(i + 1)));
+            }
+            assertEquals(expected, polynomial.evaluate(x));
+            assertEquals(expected.mod(FIELD), polynomial.evaluateMod(x));
+        }
+    }
+
+    @Test
+    void sharesReconstructTheSecret() {
+        BigInteger secret = BigInteger.valueOf(123456789);
+        Polynomial polynomial = Polynomial.random(secret, FIELD, 4, random);
+        BigInteger integerSum = BigInteger.ZERO;
+        BigInteger fieldSum = BigInteger.ZERO;
+        for (int input = 1; input <= SERVERS; input++) {
+            BigInteger beta = lagrangeCoefficient(input);
+            integerSum = integerSum.add(polynomial.share(input, beta, ShareMode.INTEGER));
+            BigInteger share = polynomial.share(input, beta, ShareMode.FIELD);
+            assertTrue(share.bitLength() <= FIELD.bitLength());
+            fieldSum = fieldSum.add(share);
+        }
+        assertEquals(secret, integerSum);
+        assertEquals(secret, fieldSum.mod(FIELD));
+    }
+
+    private static BigInteger lagrangeCoefficient(int current) {
+        Set<Integer> inputs = IntStream.rangeClosed(1, SERVERS).boxed().collect(Collectors.toSet());
+        BigInteger nominator = BigInteger.ONE;
+        BigInteger denominator = BigInteger.ONE;
+        for (int x : inputs) {
+            if (x == current) continue;
+            nominator = nominator.multiply(BigInteger.valueOf(x));
+            denominator = denominator.multiply(BigInteger.valueOf(x - current));
+        }
+        return nominator.divide(denominator);
+    }
+}
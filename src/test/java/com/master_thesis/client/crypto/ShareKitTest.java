@@ -0,0 +1,57 @@
+package com.master_thesis.client.crypto;
+
+import com.master_thesis.client.data.Server;
+import com.master_thesis.client.data.ShareMode;
+import com.master_thesis.client.util.ServerSet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShareKitTest {
+
+    private static final BigInteger FIELD = BigInteger.ONE.shiftLeft(107).subtract(BigInteger.ONE);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(191);
+
+    @Test
+    void sharesReconstructTheSecret() {
+        ServerSet serverSet = servers(7);
+        for (ShareMode mode : ShareMode.values()) {
+            for (long value : new long[]{0, 1234, -56}) {
+                BigInteger secret = BigInteger.valueOf(value);
+                ShareKit kit = ShareKit.generate(FIELD, GENERATOR, 4, serverSet, mode, new Random(value));
+                BigInteger sum = BigInteger.ZERO;
+                for (int i = 0; i < serverSet.size(); i++) {
+                    sum = sum.add(kit.share(i, secret));
+                }
+                if (mode == ShareMode.FIELD)
+                    assertEquals(secret.mod(FIELD), sum.mod(FIELD));
+                else
+                    assertEquals(secret, sum);
+            }
+        }
+    }
+
+    @Test
+    void proofComponentIsTheHashOfSecretAndNonce() {
+        ShareKit kit = ShareKit.generate(FIELD, GENERATOR, 4, servers(3), ShareMode.INTEGER, new Random(3));
+        BigInteger secret = BigInteger.valueOf(987654321);
+        assertEquals(GENERATOR.modPow(secret.add(kit.getNonce()), FIELD), kit.proofComponent(secret));
+    }
+
+    private static ServerSet servers(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        return new ServerSet(servers, 1);
+    }
+}
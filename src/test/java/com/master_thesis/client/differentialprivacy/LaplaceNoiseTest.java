@@ -6,8 +6,15 @@ import org.junit.jupiter.api.Test;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
 class LaplaceNoiseTest {
 
     private LaplaceNoise laplaceNoise;
@@ -39,12 +46,59 @@ class LaplaceNoiseTest {
         long noisySecret = laplaceNoise.addNoise(secret, l0Sensitivity, epsilon, null);
     }
 
+    @Test
+    void discreteNoiseHasTheLaplaceDistribution() {
+        int samples = 1_000_000;
+        double scale = 4;
+        long[] noise = new long[samples];
+        laplaceNoise.addNoise(noise, 1, 1 / scale);
+        // P(X = 0) = (1 - p) / (1 + p) and Var(X) = 2p / (1 - p)^2 with p = exp(-1 / scale).
+        double p = Math.exp(-1 / scale);
+        long zeros = 0;
+        double sum = 0;
+        double squares = 0;
+        for (long x : noise) {
+            if (x == 0)
+                zeros++;
+            sum += x;
+            squares += x * x;
+        }
+        assertEquals((1 - p) / (1 + p), (double) zeros / samples, 0.002);
+        assertEquals(0, sum / samples, 0.03);
+        assertEquals(2 * p / Math.pow(1 - p, 2), squares / samples, 0.5);
+        assertThrows(IllegalArgumentException.class,
+                () -> laplaceNoise.addNoise(10L, 1, 1d, 0.1));
+    }
+
+    @Test
+    void addNoiseAndSumGivesEveryReadingItsOwnNoise() {
+        long[] readings = {5, 7, 11, 13, 17};
+        // With a tiny scale there is no noise, and only the first count readings are summed.
+        assertEquals(5 + 7 + 11, laplaceNoise.addNoiseAndSum(readings, 3, 1, 1e12));
+
+        int meters = 16;
+        int trials = 20_000;
+        double scale = 4;
+        long[] zeros = new long[meters];
+        double squares = 0;
+        for (int t = 0; t < trials; t++) {
+            long noise = laplaceNoise.addNoiseAndSum(zeros, meters, 1, 1 / scale);
+            squares += noise * noise;
+        }
+        // The noise of the sum has the variance of every meter's noise added up.
+        double p = Math.exp(-1 / scale);
+        double variance = meters * 2 * p / Math.pow(1 - p, 2);
+        assertEquals(variance, squares / trials, variance / 10);
+        assertArrayEquals(new long[meters], zeros);
+    }
+
     @Test
     /**
      * This Test reads the entire user data csv file, maps the dates and compute the sum and noise_sum.
      * Writes the result to another csv file. Note, this is the best test ever!
      */
     void compareNoisySumAndSum() {
+        assumeTrue(Files.exists(Path.of(dpd.getDataPath())), "needs the user data csv file");
         long sum = 0;
         long noisySum = 0;
         int l0Sensitivity = 1;
@@ -53,14 +107,12 @@ class LaplaceNoiseTest {
         reader.setFilePath("src/main/resources/testdata.csv");
         LinkedList<Integer> consumptions;
         long diff;
-        do {
-            consumptions = reader.readValuesMappedOnTimeFromCSV();
-            assert consumptions != null;
+        while ((consumptions = reader.readValuesMappedOnTimeFromCSV()) != null) {
             long internalSum = consumptions.stream().reduce(0, Integer::sum);
             long internalNoisySum = addNoiseAndAggregate(consumptions);
             diff = Math.max(internalSum, internalNoisySum) - Math.min(internalSum, internalNoisySum);
             writeToCSV(internalSum, internalNoisySum, diff);
-        } while (consumptions != null);
+        }
     }
 
     private void writeToCSV(long internalSum, long internalNoisySum, long diff) {
@@ -81,6 +133,7 @@ class LaplaceNoiseTest {
 
     @Test
     void testL0Linf() {
+        assumeTrue(Files.exists(Path.of(dpd.getDataPath())), "needs the user data csv file");
         double epsilon = Math.log(3);
 
         Reader reader = new Reader(dpd);
@@ -0,0 +1,87 @@
+package com.master_thesis.client.simulation;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.client.DifferentialPrivacy;
+import com.master_thesis.client.HomomorphicHash;
+import com.master_thesis.client.SharePipeline;
+import com.master_thesis.client.data.*;
+import com.master_thesis.client.util.HttpAdapter;
+import com.master_thesis.client.util.Reader;
+import com.master_thesis.client.util.SendReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the simulation against an http adapter that never reaches the servers of the Homomorphic Hash
+ * construction, while everything of the Differential Privacy construction is acked.
+ */
+class MeterSimulationTest {
+
+    private static final URI HASH_SERVER = URI.create("http://localhost:2000/api/" + Construction.HASH.getEndpoint());
+    private static final URI DP_SERVER = URI.create("http://localhost:2000/api/" + Construction.DP.getEndpoint());
+
+    private MeterSimulation simulation;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(SharePipeline.class)).setLevel(Level.OFF);
+        ((Logger) LoggerFactory.getLogger(MeterSimulation.class)).setLevel(Level.OFF);
+        AtomicInteger clients = new AtomicInteger();
+        HttpAdapter httpAdapter = new HttpAdapter() {
+            @Override
+            public ClientStartupData registerClient() {
+                ClientStartupData startupData = new ClientStartupData();
+                startupData.setClientID(clients.incrementAndGet());
+                return startupData;
+            }
+
+            @Override
+            public CompletableFuture<SendReport> sendAll(Map<URI, ? extends ComputationData> serverData, Object nonceData, ComputationData verifierData) {
+                Map<URI, Throwable> failures = serverData.containsKey(HASH_SERVER)
+                        ? Map.of(HASH_SERVER, new IOException("Connection refused"))
+                        : Map.of();
+                return CompletableFuture.completedFuture(new SendReport(serverData.size() + 2, failures, null, null));
+            }
+
+            @Override
+            public CompletableFuture<URI> updateFidAsync(int substationID, int clientID, int fid) {
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        HomomorphicHash homomorphicHash = new HomomorphicHash(null) {
+            @Override
+            public HomomorphicHashData shareSecret(BigInteger secret, int substationID) {
+                return new HomomorphicHashData(Map.of(HASH_SERVER, secret), BigInteger.ONE, BigInteger.TWO);
+            }
+        };
+        DifferentialPrivacy differentialPrivacy = new DifferentialPrivacy(null, null, null) {
+            @Override
+            public DifferentialPrivacyData shareSecret(BigInteger secret, int substationID) {
+                return new DifferentialPrivacyData(Map.of(DP_SERVER, secret), BigInteger.ONE, BigInteger.TWO);
+            }
+        };
+        SharePipeline sharePipeline = new SharePipeline(null, homomorphicHash, null, differentialPrivacy, httpAdapter, null);
+        simulation = new MeterSimulation(sharePipeline, httpAdapter, 8);
+    }
+
+    @Test
+    void undeliveredSharesAreCountedAsFailures() {
+        MeterSimulation.Report report = simulation.run(new Reader(), 4, 3, 2, List.of(Construction.HASH, Construction.DP));
+        assertEquals(4, report.getMeters());
+        // Only the shares of the Differential Privacy construction were delivered, every reading failed.
+        assertEquals(12, report.getShares());
+        assertEquals(12, report.getFailedReadings());
+    }
+}
@@ -0,0 +1,205 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.data.HomomorphicHashData;
+import com.master_thesis.client.data.Server;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends shares to a local stand-in for a server. The stand-in records the port of every connection it sees,
+ * which tells us how many connections the client opened.
+ */
+class HttpAdapterTest {
+
+    private static final int REQUESTS = 200;
+    private HttpServer server;
+    private URI uri;
+    private Set<Integer> connections;
+    private final List<HttpServer> standIns = new ArrayList<>();
+    private final List<ExecutorService> standInExecutors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        connections = ConcurrentHashMap.newKeySet();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            connections.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/hash-data");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        standIns.forEach(standIn -> standIn.stop(0));
+        standInExecutors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    void sharesReuseOneConnection() {
+        HttpAdapter httpAdapter = new HttpAdapter();
+        HomomorphicHashData data = new HomomorphicHashData(Map.of(uri, BigInteger.TEN), BigInteger.ONE, BigInteger.TWO);
+        for (int i = 0; i < REQUESTS; i++) {
+            httpAdapter.sendServerShare(uri, data.getServerData().get(uri));
+        }
+        assertEquals(1, connections.size());
+    }
+
+    @Test
+    void prewarmSendsAHeadRequestOnlyWhenEnabled() throws Exception {
+        HttpAdapter httpAdapter = new HttpAdapter();
+        List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        URI root = standIn(exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        Server server = new Server();
+        server.setUri(root.resolve("/"));
+
+        httpAdapter.prewarm(List.of(server)).get(30, TimeUnit.SECONDS);
+        assertEquals(List.of(), methods);
+
+        httpAdapter.setPrewarm(true);
+        httpAdapter.prewarm(List.of(server)).get(30, TimeUnit.SECONDS);
+        assertEquals(List.of("HEAD"), methods);
+    }
+
+    @Test
+    void sendAllReportsTheShareThatFailed() throws Exception {
+        HttpAdapter httpAdapter = new HttpAdapter();
+        httpAdapter.configureRetries(2, 10);
+        URI failing = standIn(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        // The coordinator and the verifier reject the nonce and the proof component as well.
+        httpAdapter.configureEndpoints(failing.resolve("/"), failing.resolve("/"));
+        // The shares are reported in the order of the map they are sent from.
+        Map<URI, BigInteger> shares = new LinkedHashMap<>();
+        shares.put(failing, BigInteger.ONE);
+        shares.put(uri, BigInteger.TEN);
+        HomomorphicHashData data = new HomomorphicHashData(shares, BigInteger.ONE, BigInteger.TWO);
+
+        SendReport report = httpAdapter.sendAll(data.getServerData(), data.getNonceData(), data.getVerifierData()).get(30, TimeUnit.SECONDS);
+        assertEquals(4, report.getSent());
+        assertEquals(List.of(failing), new ArrayList<>(report.getServerFailures().keySet()));
+        assertTrue(report.getServerFailures().get(failing).getMessage().startsWith("Status code 500"));
+        assertTrue(report.getNonceFailure().getMessage().startsWith("Status code 500"));
+        assertTrue(report.getVerifierFailure().getMessage().startsWith("Status code 500"));
+        assertEquals(3, report.getFailureCount());
+        assertFalse(report.isDelivered());
+        assertEquals(1, connections.size());
+
+        // With every destination answering, everything is delivered.
+        httpAdapter.configureEndpoints(uri.resolve("/"), uri.resolve("/"));
+        HomomorphicHashData delivered = new HomomorphicHashData(Map.of(uri, BigInteger.TEN), BigInteger.ONE, BigInteger.TWO);
+        report = httpAdapter.sendAll(delivered.getServerData(), delivered.getNonceData(), delivered.getVerifierData()).get(30, TimeUnit.SECONDS);
+        assertEquals(3, report.getSent());
+        assertEquals(0, report.getFailureCount());
+        assertTrue(report.isDelivered());
+    }
+
+    @Test
+    void errorStatusFailsTheBlockingSendAsWell() {
+        HttpAdapter httpAdapter = new HttpAdapter();
+        httpAdapter.configureRetries(3, 10);
+        AtomicInteger requests = new AtomicInteger();
+        URI failing = standIn(exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+
+        DeliveryException e = assertThrows(DeliveryException.class, () -> httpAdapter.sendServerShare(failing, Map.of()));
+        assertEquals(failing, e.getUri());
+        assertTrue(e.getCause().getMessage().startsWith("Status code 500"));
+        // As in the asynchronous path, an answer with an error status is not tried again.
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void requestThatTimesOutIsRetried() throws Exception {
+        HttpAdapter httpAdapter = new HttpAdapter(HttpClient.Version.HTTP_1_1, 1000, 200);
+        httpAdapter.configureRetries(3, 10);
+        AtomicInteger requests = new AtomicInteger();
+        // Only the first request is answered too late.
+        URI slowOnce = standIn(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (requests.incrementAndGet() == 1)
+                sleep(1000);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+
+        assertEquals(slowOnce, httpAdapter.sendServerShareAsync(slowOnce, Map.of()).get(30, TimeUnit.SECONDS));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void requestIsGivenUpAfterItsTries() {
+        HttpAdapter httpAdapter = new HttpAdapter(HttpClient.Version.HTTP_1_1, 1000, 100);
+        httpAdapter.configureRetries(2, 10);
+        AtomicInteger requests = new AtomicInteger();
+        URI slow = standIn(exchange -> {
+            requests.incrementAndGet();
+            sleep(1000);
+            exchange.close();
+        });
+
+        Exception e = assertThrows(Exception.class, () -> httpAdapter.sendServerShareAsync(slow, Map.of()).get(30, TimeUnit.SECONDS));
+        DeliveryException delivery = (DeliveryException) e.getCause();
+        assertEquals(slow, delivery.getUri());
+        assertTrue(delivery.getCause() instanceof HttpTimeoutException, delivery.getCause().toString());
+        assertEquals(2, requests.get());
+    }
+
+    // A stand-in that answers on threads of its own, so a slow answer does not hold up the others.
+    private URI standIn(HttpHandler handler) {
+        try {
+            HttpServer standIn = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            standIn.createContext("/", handler);
+            ExecutorService executor = Executors.newCachedThreadPool();
+            standInExecutors.add(executor);
+            standIn.setExecutor(executor);
+            standIn.start();
+            standIns.add(standIn);
+            return URI.create("http://localhost:" + standIn.getAddress().getPort() + "/api/hash-data");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
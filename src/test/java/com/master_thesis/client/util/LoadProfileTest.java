@@ -0,0 +1,78 @@
+package com.master_thesis.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadProfileTest {
+
+    private static final int METERS = 200;
+    private static final int READINGS_PER_DAY = 96;
+
+    @Test
+    void sameSeedGivesSameReadings() {
+        LoadProfile.Meter first = new LoadProfile(7, 15).meter(3);
+        LoadProfile.Meter second = new LoadProfile(7, 15).meter(3);
+        LoadProfile.Meter otherSeed = new LoadProfile(8, 15).meter(3);
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            long reading = first.nextLong();
+            assertEquals(reading, second.nextLong());
+            assertTrue(reading >= 0);
+            differs |= reading != otherSeed.nextLong();
+        }
+        assertTrue(differs);
+        assertEquals(new LoadProfile(7, 15).reading(3, 999), new LoadProfile(7, 15).reading(3, 999));
+    }
+
+    @Test
+    void eveningsUseMoreThanNights() {
+        LoadProfile profile = new LoadProfile(1, 15);
+        long night = 0;
+        long evening = 0;
+        for (int meter = 0; meter < METERS; meter++) {
+            for (int day = 0; day < 5; day++) {
+                // 03:00 and 19:00 of the day.
+                night += profile.reading(meter, day * READINGS_PER_DAY + 12);
+                evening += profile.reading(meter, day * READINGS_PER_DAY + 76);
+            }
+        }
+        assertTrue(evening > 3 * night, evening + " is not much more than " + night);
+    }
+
+    @Test
+    void peaksAreSharedByTheFleet() {
+        // The hour with the largest total consumption at 03:00 is a fleet wide peak, so most meters use more
+        // in it than in their average night.
+        LoadProfile profile = new LoadProfile(1, 60);
+        int days = 100;
+        long[] totals = new long[days];
+        for (int meter = 0; meter < METERS; meter++) {
+            for (int day = 0; day < days; day++) {
+                totals[day] += profile.reading(meter, day * 24 + 3);
+            }
+        }
+        int peakDay = 0;
+        long average = 0;
+        for (int day = 0; day < days; day++) {
+            average += totals[day] / days;
+            if (totals[day] > totals[peakDay])
+                peakDay = day;
+        }
+        assertTrue(totals[peakDay] > 1.2 * average, totals[peakDay] + " is no peak over " + average);
+    }
+
+    @Test
+    void copiesOfAReaderReadTheirOwnMeter() {
+        LoadProfile profile = new LoadProfile(5, 15);
+        Reader template = new Reader();
+        template.setLoadProfile(profile);
+        Reader first = new Reader(template);
+        Reader second = new Reader(template);
+        assertEquals(BigInteger.valueOf(profile.reading(0, 0)), first.readValue());
+        assertEquals(BigInteger.valueOf(profile.reading(1, 0)), second.readValue());
+        assertEquals(BigInteger.valueOf(profile.reading(0, 1)), first.readValue());
+    }
+}
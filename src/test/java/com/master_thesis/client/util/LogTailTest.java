@@ -0,0 +1,133 @@
+package com.master_thesis.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTailTest {
+
+    @Test
+    void appendedLinesAreHandedToTheirColumns() throws Exception {
+        Path path = write("1,2\n");
+        try (LogTail tail = LogTail.follow(path)) {
+            LogTail.Subscription first = tail.subscribeNext();
+            LogTail.Subscription second = tail.subscribeNext();
+            AtomicInteger landed = new AtomicInteger();
+            first.setOnReading(landed::incrementAndGet);
+
+            append(path, "3,4\n5,");
+            // The lines that were in the file before it was followed are not read.
+            assertEquals(3, take(first).getValue());
+            assertEquals(4, take(second).getValue());
+            assertEquals(8, first.getPosition());
+            assertEquals(1, landed.get());
+
+            // The last line is only read once it is complete.
+            awaitReadPosition(tail, 10);
+            assertEquals(0, second.getPending());
+            append(path, "-6\n");
+            assertEquals(5, take(first).getValue());
+            assertEquals(-6, take(second).getValue());
+            assertEquals(13, second.getPosition());
+            assertEquals(4, tail.getIngested());
+        }
+    }
+
+    @Test
+    void aTruncatedLogIsFollowedFromItsBeginning() throws Exception {
+        Path path = write("1\n2\n3\n");
+        try (LogTail tail = LogTail.follow(path)) {
+            LogTail.Subscription subscription = tail.subscribe(0);
+            Files.writeString(path, "7\n");
+            assertEquals(7, take(subscription).getValue());
+            assertEquals(2, subscription.getPosition());
+        }
+    }
+
+    @Test
+    void aRotatedLogIsFollowedFromItsBeginning() throws Exception {
+        Path path = write("1\n2\n3\n");
+        try (LogTail tail = LogTail.follow(path)) {
+            LogTail.Subscription subscription = tail.subscribe(0);
+            // The new file is longer than the old one, so its size does not tell that it was replaced.
+            Path rotated = write("4\n5\n6\n7\n");
+            Files.move(rotated, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            assertEquals(4, take(subscription).getValue());
+            assertEquals(5, take(subscription).getValue());
+        }
+    }
+
+    @Test
+    void readersRecordTheLatencyFromIngestToSend() throws Exception {
+        Path path = write("");
+        Reader template = new Reader();
+        template.setLogPath(path.toString());
+        Reader reader = new Reader(template);
+        assertFalse(reader.hasPendingReading());
+        append(path, "42\n");
+        assertEquals(BigInteger.valueOf(42), CompletableFuture.supplyAsync(reader::readValue).get(5, TimeUnit.SECONDS));
+        reader.readingSent();
+        LogTail tail = template.getLogTail();
+        assertEquals(1, tail.getSent());
+        assertTrue(tail.getMaxLatencyMillis() > 0);
+        assertEquals(3, reader.getFilePosition());
+        tail.close();
+    }
+
+    @Test
+    void readersOfAChosenColumnShareIt() throws Exception {
+        Path path = write("");
+        Reader template = new Reader();
+        // Column 0 is a column like any other, it does not give every reader a column of its own.
+        template.setSecretMode(new Scanner("tail\n" + path + "\n0\n"));
+        Reader first = new Reader(template);
+        Reader second = new Reader(template);
+        assertFalse(first.hasPendingReading());
+        assertFalse(second.hasPendingReading());
+        append(path, "1,2\n3,4\n");
+        assertEquals(BigInteger.ONE, CompletableFuture.supplyAsync(first::readValue).get(5, TimeUnit.SECONDS));
+        assertEquals(BigInteger.valueOf(3), CompletableFuture.supplyAsync(second::readValue).get(5, TimeUnit.SECONDS));
+        template.getLogTail().close();
+    }
+
+    private static LogTail.Reading take(LogTail.Subscription subscription) throws InterruptedException, ExecutionException, TimeoutException {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return subscription.take();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitReadPosition(LogTail tail, long position) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (tail.getReadPosition() != position) {
+            assertTrue(System.nanoTime() < deadline, "read up to " + tail.getReadPosition() + " instead of " + position);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void append(Path path, String content) throws IOException {
+        Files.writeString(path, content, StandardOpenOption.APPEND);
+    }
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("meter", ".log");
+        path.toFile().deleteOnExit();
+        return Files.writeString(path, content);
+    }
+}
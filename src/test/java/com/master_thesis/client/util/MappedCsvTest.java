@@ -0,0 +1,87 @@
+package com.master_thesis.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCsvTest {
+
+    @Test
+    void readsOneColumnAndStartsOver() throws IOException {
+        MappedCsv csv = MappedCsv.open(write("3\n-14\n159\n"));
+        MappedCsv.Cursor cursor = csv.cursor(0);
+        long[] expected = {3, -14, 159, 3, -14};
+        for (long value : expected) {
+            assertEquals(value, cursor.nextLong());
+        }
+        assertEquals(5, csv.getValuesRead());
+    }
+
+    @Test
+    void everyCursorReadsItsOwnColumn() throws IOException {
+        MappedCsv csv = MappedCsv.open(write("time,a,b\r\n2020-01-09 00,10,20\r\n2020-01-09 01,11,21\r\n"));
+        assertEquals(3, csv.getColumns());
+        csv.nextCursor();
+        MappedCsv.Cursor a = csv.nextCursor();
+        MappedCsv.Cursor b = csv.nextCursor();
+        assertEquals(1, a.getColumn());
+        assertEquals(2, b.getColumn());
+        // The header is skipped.
+        assertEquals(10, a.nextLong());
+        assertEquals(20, b.nextLong());
+        assertEquals(11, a.nextLong());
+        assertEquals(21, b.nextLong());
+        assertEquals(10, a.nextLong());
+        assertEquals(0, csv.nextCursor().getColumn());
+    }
+
+    @Test
+    void readsAcrossSegments() throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.append(i * 7919).append('\n');
+        }
+        // Segments of 16 bytes start in the middle of most values.
+        MappedCsv csv = MappedCsv.open(write(lines.toString()), 4);
+        MappedCsv.Cursor cursor = csv.cursor(0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 7919L, cursor.nextLong());
+        }
+        assertEquals(0, cursor.nextLong());
+    }
+
+    @Test
+    void failsWithoutValues() throws IOException {
+        MappedCsv csv = MappedCsv.open(write("a,b\nc,d\n"));
+        assertThrows(IllegalStateException.class, () -> csv.cursor(1).nextLong());
+        assertThrows(IllegalArgumentException.class, () -> csv.cursor(2));
+        assertThrows(IllegalStateException.class, () -> MappedCsv.open(write("")).cursor(0).nextLong());
+    }
+
+    @Test
+    void readsTheTimeAndAllColumnsOfALine() throws IOException {
+        MappedCsv csv = MappedCsv.open(write("time,a,b,c\n2020-01-09 01:15,10,,30.5\n1578532500,11,21,31\n"));
+        MappedCsv.Cursor cursor = csv.cursor(1);
+        long[] values = new long[3];
+        assertEquals(2, cursor.nextLine(values));
+        assertArrayEquals(new long[]{10, Long.MIN_VALUE, 30}, values);
+        assertEquals(1578532500_000L, cursor.getTimestamp());
+        assertTrue(cursor.lineStartsWith("2020-01-09 01".getBytes()));
+        assertEquals(3, cursor.nextLine(values));
+        assertEquals(1578532500_000L, cursor.getTimestamp());
+        assertFalse(cursor.lineStartsWith("2020".getBytes()));
+        assertEquals(0, cursor.nextLine(values));
+        cursor.seek(0);
+        assertEquals(10, cursor.nextLong());
+    }
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("meter", ".csv");
+        path.toFile().deleteOnExit();
+        return Files.writeString(path, content);
+    }
+}
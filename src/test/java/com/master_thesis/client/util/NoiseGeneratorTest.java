@@ -0,0 +1,92 @@
+package com.master_thesis.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NoiseGeneratorTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    @Test
+    void zigguratSamplesTheStandardNormal() {
+        NoiseGenerator.Ziggurat ziggurat = new NoiseGenerator().sampler();
+        double sum = 0;
+        double squares = 0;
+        // The probabilities of the standard normal to be beyond 1, 2, 3 and 4.
+        double[] bounds = {1, 2, 3, 4};
+        double[] expected = {0.31731, 0.04550, 0.0026998, 0.00006334};
+        long[] beyond = new long[bounds.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = ziggurat.next();
+            sum += x;
+            squares += x * x;
+            for (int b = 0; b < bounds.length; b++) {
+                if (Math.abs(x) > bounds[b])
+                    beyond[b]++;
+            }
+        }
+        assertEquals(0, sum / SAMPLES, 0.005);
+        assertEquals(1, squares / SAMPLES, 0.01);
+        for (int b = 0; b < bounds.length; b++) {
+            // Five standard deviations of the count.
+            double tolerance = 5 * Math.sqrt(expected[b] * SAMPLES) / SAMPLES;
+            assertEquals(expected[b], (double) beyond[b] / SAMPLES, tolerance, "beyond " + bounds[b]);
+        }
+    }
+
+    @Test
+    void batchesHaveTheVarianceOfTheClients() {
+        NoiseGenerator noiseGenerator = new NoiseGenerator();
+        // A variance of 1.5 * 200 / 3 = 100.
+        noiseGenerator.computeGaussianVariance(200, 3);
+        long[] readings = new long[SAMPLES];
+        Arrays.fill(readings, 1000);
+        noiseGenerator.addNoise(readings);
+        double sum = 0;
+        double squares = 0;
+        for (long reading : readings) {
+            sum += reading - 1000;
+            squares += (reading - 1000) * (reading - 1000);
+        }
+        assertEquals(0, sum / SAMPLES, 0.05);
+        // Rounding to integers adds a variance of 1/12.
+        assertEquals(100 + 1 / 12.0, squares / SAMPLES, 1);
+    }
+
+    @Test
+    void threadsSampleIndependently() throws Exception {
+        NoiseGenerator noiseGenerator = new NoiseGenerator();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<long[]>> batches = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                batches.add(executor.submit(() -> {
+                    long[] noise = new long[1000];
+                    noiseGenerator.fillGaussianIntegerNoise(noise, 0, 1e12);
+                    return noise;
+                }));
+            }
+            long[] first = batches.get(0).get();
+            for (int i = 1; i < batches.size(); i++) {
+                long[] other = batches.get(i).get();
+                int same = 0;
+                for (int j = 0; j < first.length; j++) {
+                    if (first[j] == other[j])
+                        same++;
+                }
+                assertTrue(same < 10);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.data.LinearSignatureData.ClientData;
+import com.master_thesis.client.data.LinearSignatureData.PublicData;
+import com.master_thesis.client.data.Server;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PublicParametersTest {
+
+    private Map<Integer, AtomicInteger> fetches;
+    private AtomicInteger staticFetches;
+    private AtomicInteger setupFetches;
+    private AtomicInteger serverFetches;
+    private AtomicInteger rsaFetches;
+    private PublicParameters publicParameters;
+
+    @BeforeEach
+    void setUp() {
+        fetches = new ConcurrentHashMap<>();
+        staticFetches = new AtomicInteger();
+        setupFetches = new AtomicInteger();
+        serverFetches = new AtomicInteger();
+        rsaFetches = new AtomicInteger();
+        HttpAdapter httpAdapter = new HttpAdapter() {
+            @Override
+            public BigInteger getFieldBase(int substationID) {
+                setupFetches.incrementAndGet();
+                return BigInteger.valueOf(1009 + substationID);
+            }
+
+            @Override
+            public BigInteger getGenerator(int substationID) {
+                return BigInteger.TWO;
+            }
+
+            @Override
+            public int getTSecurity(int substationID) {
+                return 3;
+            }
+
+            @Override
+            public List<Server> getServers() {
+                serverFetches.incrementAndGet();
+                Server server = new Server();
+                server.setServerID(1);
+                server.setUri(URI.create("http://localhost:2000/"));
+                return List.of(server);
+            }
+
+            @Override
+            public BigInteger[] getRSASecretPrimes(int substationID) {
+                rsaFetches.incrementAndGet();
+                return new BigInteger[]{BigInteger.valueOf(77), BigInteger.valueOf(15)};
+            }
+
+            @Override
+            public PublicData getLinearPublicData(int substationID, int fid) {
+                fetches.computeIfAbsent(fid, key -> new AtomicInteger()).incrementAndGet();
+                return new PublicData(BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(fid), BigInteger.ONE, BigInteger.ONE, new BigInteger[0], new BigInteger[0]);
+            }
+
+            @Override
+            public PublicData getLinearStaticData(int substationID) {
+                staticFetches.incrementAndGet();
+                return new PublicData(BigInteger.TEN, BigInteger.TWO, null, BigInteger.ONE, BigInteger.ONE, null, new BigInteger[0]);
+            }
+
+            @Override
+            public ClientData getLinearClientData(int substationID, int clientID, int fid) {
+                fetches.computeIfAbsent(fid, key -> new AtomicInteger()).incrementAndGet();
+                return new ClientData(BigInteger.valueOf(fid), BigInteger.valueOf(100 + clientID));
+            }
+        };
+        publicParameters = new PublicParameters(httpAdapter, 300);
+        publicParameters.configureLinear(3, false);
+    }
+
+    @Test
+    void substationParametersAreFetchedOnceUntilInvalidated() {
+        assertEquals(BigInteger.valueOf(1009), publicParameters.getFieldBase(0));
+        assertEquals(BigInteger.TWO, publicParameters.getGenerator(0));
+        assertEquals(3, publicParameters.getSecurityThreshold(0));
+        assertEquals(1, setupFetches.get());
+        assertEquals(BigInteger.valueOf(1010), publicParameters.getFieldBase(1));
+        assertEquals(2, setupFetches.get());
+
+        // Only the invalidated substation is fetched again.
+        publicParameters.invalidate(0);
+        publicParameters.getFieldBase(0);
+        publicParameters.getFieldBase(1);
+        assertEquals(3, setupFetches.get());
+
+        publicParameters.invalidateAll();
+        publicParameters.getFieldBase(1);
+        assertEquals(4, setupFetches.get());
+    }
+
+    @Test
+    void serversAreFetchedOnceUntilInvalidated() {
+        ServerSet serverSet = publicParameters.getServerSet();
+        assertSame(serverSet, publicParameters.getServerSet());
+        assertEquals(1, publicParameters.getServers().size());
+        assertEquals(1, serverFetches.get());
+
+        // The same servers are fetched again, the server set and its coefficients are kept.
+        publicParameters.invalidateServers();
+        assertSame(serverSet, publicParameters.getServerSet());
+        assertEquals(2, serverFetches.get());
+    }
+
+    @Test
+    void rsaNIsCachedButNotShared() {
+        BigInteger[] rsaN = publicParameters.getRsaN(0);
+        rsaN[0] = BigInteger.ZERO;
+        BigInteger[] again = publicParameters.getRsaN(0);
+        assertNotSame(rsaN, again);
+        assertEquals(BigInteger.valueOf(77), again[0]);
+        assertEquals(1, rsaFetches.get());
+
+        publicParameters.invalidate(0);
+        publicParameters.getRsaN(0);
+        assertEquals(2, rsaFetches.get());
+    }
+
+    @Test
+    void linearPublicDataIsFetchedOncePerFid() {
+        PublicData share = publicParameters.getLinearPublicData(0, 1, 7);
+        PublicData proof = publicParameters.getLinearPublicData(0, 1, 7);
+        assertSame(share, proof);
+        assertEquals(1, fetches.get(7).get());
+
+        publicParameters.releaseLinearPublicData(0, 1, 7);
+        publicParameters.getLinearPublicData(0, 1, 7);
+        assertEquals(2, fetches.get(7).get());
+    }
+
+    @Test
+    void prefetchFetchesTheUpcomingFids() throws InterruptedException {
+        publicParameters.prefetchLinearPublicData(0, 1, 10, 4);
+        for (int i = 0; i < 100 && fetches.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, fetches.size());
+        assertEquals(1, fetches.get(10).get());
+        assertEquals(1, fetches.get(14).get());
+        assertEquals(1, fetches.get(18).get());
+
+        // The prefetched data is used without fetching it again.
+        publicParameters.getLinearPublicData(0, 1, 14);
+        assertEquals(1, fetches.get(14).get());
+    }
+
+    @Test
+    void clientScopedDataFetchesTheStaticPartOnce() {
+        publicParameters.configureLinear(3, true);
+        for (int fid = 1; fid <= 5; fid++) {
+            PublicData data = publicParameters.getLinearPublicData(0, 4, fid);
+            assertEquals(BigInteger.TEN, data.getN());
+            assertEquals(BigInteger.valueOf(fid), data.getFidPrime());
+            assertEquals(BigInteger.valueOf(104), data.getClientH(4));
+        }
+        assertEquals(1, staticFetches.get());
+        assertEquals(BigInteger.TEN, publicParameters.getLinearN(0, 6));
+        assertEquals(1, staticFetches.get());
+    }
+}
@@ -0,0 +1,131 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.crypto.RSAKeyEpoch;
+import com.master_thesis.client.data.KeyShareEncoding;
+import com.master_thesis.client.data.Server;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RSAKeyEpochsTest {
+
+    private ServerSet serverSet;
+    private PublicParameters publicParameters;
+
+    @BeforeEach
+    void setUp() {
+        serverSet = servers(5, 1);
+        publicParameters = new PublicParameters(null, 300) {
+            @Override
+            public ServerSet getServerSet() {
+                return serverSet;
+            }
+
+            @Override
+            public SubstationParameters getSubstationParameters(int substationID) {
+                return new SubstationParameters(substationID, BigInteger.valueOf(65537), BigInteger.valueOf(3), 3, 1);
+            }
+
+            @Override
+            public BigInteger[] getRsaN(int substationID) {
+                // N = (2p'+1)(2q'+1) with p' = 11 and q' = 23.
+                return new BigInteger[]{BigInteger.valueOf(23 * 47), BigInteger.valueOf(11 * 23)};
+            }
+        };
+    }
+
+    @Test
+    void epochIsUsedForItsFids() {
+        RSAKeyEpochs epochs = new RSAKeyEpochs(publicParameters, 3, 0);
+        RSAKeyEpoch first = epochs.acquire(0);
+        assertSame(first, epochs.acquire(0));
+        assertSame(first, epochs.acquire(0));
+        RSAKeyEpoch second = epochs.acquire(0);
+        assertNotSame(first, second);
+        assertSame(second, epochs.acquire(0));
+    }
+
+    @Test
+    void epochIsUsedForItsMinutesAfterItsFirstUse() {
+        AtomicLong now = new AtomicLong();
+        RSAKeyEpochs epochs = new RSAKeyEpochs(publicParameters, 0, 1) {
+            @Override
+            long nanoTime() {
+                return now.get();
+            }
+        };
+        RSAKeyEpoch first = epochs.acquire(0);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertSame(first, epochs.acquire(0));
+
+        // The next epoch was prepared at the first acquire, its minute starts when it replaces the first one.
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        RSAKeyEpoch second = epochs.acquire(0);
+        assertNotSame(first, second);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertSame(second, epochs.acquire(0));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNotSame(second, epochs.acquire(0));
+    }
+
+    @Test
+    void epochIsReplacedWhenTheServersChange() {
+        RSAKeyEpochs epochs = new RSAKeyEpochs(publicParameters, 0, 0);
+        RSAKeyEpoch first = epochs.acquire(0);
+        assertSame(first, epochs.acquire(0));
+
+        serverSet = servers(6, 2);
+        RSAKeyEpoch second = epochs.acquire(0);
+        assertNotSame(first, second);
+        assertSame(serverSet, second.getServerSet());
+        assertEquals(6, second.getMatrixOfClient().getRows());
+    }
+
+    @Test
+    void skSharesAreTheMatrixTimesTheKeyVector() {
+        RSAKeyEpoch epoch = new RSAKeyEpochs(publicParameters, 1, 0).acquire(0);
+        BigInteger[] skShares = epoch.getSkShares();
+        assertEquals(serverSet.size(), skShares.length);
+        assertEquals(BigInteger.ONE, epoch.getPublicKey().gcd(epoch.getMatrixOfClient().leadingDeterminant()));
+        assertEquals(BigInteger.ONE, epoch.getPublicKey().gcd(BigInteger.valueOf(2 * 11 * 23)));
+    }
+
+    @Test
+    void doubleEncodingKeepsTheSharesRepresentable() {
+        BigInteger rsaNPrime = BigInteger.probablePrime(512, new Random(1)).multiply(BigInteger.probablePrime(512, new Random(2)));
+        for (KeyShareEncoding encoding : KeyShareEncoding.values()) {
+            RSAKeyEpoch epoch = RSAKeyEpoch.generate(BigInteger.valueOf(65537), 3, serverSet, BigInteger.ONE, rsaNPrime,
+                    encoding, 0, 0, new Random(3));
+            assertEquals(encoding, epoch.getEncoding());
+            int maxBits = 0;
+            for (BigInteger skShare : epoch.getSkShares()) {
+                maxBits = Math.max(maxBits, skShare.bitLength());
+            }
+            // The int key vector and matrix give shares below 3 * 2^31 * 2^31, the full private key has ~1024 bits.
+            if (encoding == KeyShareEncoding.DOUBLE)
+                assertTrue(maxBits < 64, "bits " + maxBits);
+            else
+                assertTrue(maxBits > 900, "bits " + maxBits);
+        }
+    }
+
+    private static ServerSet servers(int count, long version) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        return new ServerSet(servers, version);
+    }
+}
@@ -0,0 +1,98 @@
+package com.master_thesis.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReaderTest {
+
+    private static final String READINGS = "time,a,b\n"
+            + "2020-01-09 00:00,1,2\n"
+            + "2020-01-09 00:15,3,4\n"
+            + "2020-01-09 01:00,5,6\n";
+
+    @Test
+    void readersOfATemplateShareTheFile() throws IOException {
+        Path path = write("1,2\n3,4\n");
+        Reader template = new Reader();
+        template.setSecretMode(new Scanner("file\n" + path + "\nany\n"));
+        Reader first = new Reader(template);
+        Reader second = new Reader(template);
+        assertEquals(BigInteger.ONE, first.readValue());
+        assertEquals(BigInteger.TWO, second.readValue());
+        assertEquals(BigInteger.valueOf(3), first.readValue());
+        assertSame(template.getMappedFile(), second.getMappedFile());
+        assertEquals(3, template.getMappedFile().getValuesRead());
+        assertEquals(8, first.getFilePosition());
+    }
+
+    @Test
+    void replaysAtTheTimesOfTheFile() throws IOException {
+        Reader template = new Reader();
+        template.setFilePath(write(READINGS).toString());
+        // 15 minutes of the file take 50 ms.
+        template.setReplaySpeed(TimeUnit.MINUTES.toMillis(15) / 50.0);
+        Reader first = new Reader(template);
+        Reader second = new Reader(template);
+
+        long start = first.nextReadingDueAt();
+        assertEquals(start, second.nextReadingDueAt());
+        assertEquals(BigInteger.ONE, first.readValue());
+        assertEquals(BigInteger.TWO, second.readValue());
+        assertEquals(start + TimeUnit.MILLISECONDS.toNanos(50), first.nextReadingDueAt(), 1e6);
+        assertEquals(BigInteger.valueOf(3), first.readValue());
+        assertTrue(System.nanoTime() >= start + TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(start + TimeUnit.MILLISECONDS.toNanos(200), first.nextReadingDueAt(), 1e6);
+        assertEquals(BigInteger.valueOf(5), first.readValue());
+        // The replay starts over 45 minutes after the last reading, the interval before it.
+        assertEquals(start + TimeUnit.MILLISECONDS.toNanos(350), first.nextReadingDueAt(), 1e6);
+        assertEquals(BigInteger.ONE, first.readValue());
+    }
+
+    @Test
+    void replaysAsFastAsPossible() throws IOException {
+        Reader reader = new Reader();
+        reader.setReplaySpeed(0);
+        reader.setFilePath(write(READINGS).toString());
+        long start = reader.nextReadingDueAt();
+        for (int value : new int[]{1, 3, 5, 1}) {
+            assertEquals(start, reader.nextReadingDueAt());
+            assertEquals(BigInteger.valueOf(value), reader.readValue());
+        }
+    }
+
+    @Test
+    void readsAllMetersAtATime() throws IOException {
+        Reader reader = new Reader();
+        reader.setFilePath(write(READINGS).toString());
+        assertEquals(List.of(1, 2), reader.readValuesMappedOnTimeFromCSV());
+        assertEquals(List.of(5, 6), reader.readValuesMappedOnTimeFromCSV("2020-01-09 01"));
+        assertEquals(List.of(3, 4), reader.readValuesMappedOnTimeFromCSV("2020-01-09 00:15"));
+        assertNull(reader.readValuesMappedOnTimeFromCSV("2020-01-10"));
+        assertEquals(List.of(5, 6), reader.readValuesMappedOnTimeFromCSV());
+        assertNull(reader.readValuesMappedOnTimeFromCSV());
+    }
+
+    @Test
+    void keepsTheColumnsOfMetersWithoutAReading() throws IOException {
+        Reader reader = new Reader();
+        reader.setFilePath(write("time,a,b,c\n2020-01-09 00:00,,2,3\n2020-01-09 00:15,4,5000000000,x\n").toString());
+        assertEquals(Arrays.asList(null, 2, 3), reader.readValuesMappedOnTimeFromCSV());
+        assertEquals(Arrays.asList(4, null, null), reader.readValuesMappedOnTimeFromCSV("2020-01-09 00:15"));
+    }
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("meter", ".csv");
+        path.toFile().deleteOnExit();
+        return Files.writeString(path, content);
+    }
+}
@@ -0,0 +1,53 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.data.Server;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerSetTest {
+
+    @Test
+    void coefficientsInterpolateAtZero() {
+        for (int m = 1; m <= 12; m++) {
+            ServerSet serverSet = new ServerSet(servers(m), 1);
+            // Interpolating the constant polynomial 1 and the polynomial x at 0 gives 1 and 0.
+            BigInteger constant = BigInteger.ZERO;
+            BigInteger linear = BigInteger.ZERO;
+            for (int i = 0; i < m; i++) {
+                constant = constant.add(serverSet.getLagrangeCoefficient(i));
+                linear = linear.add(serverSet.getLagrangeCoefficient(i).multiply(BigInteger.valueOf(serverSet.getPolynomialInput(i))));
+            }
+            assertEquals(BigInteger.ONE, constant);
+            assertEquals(m == 1 ? BigInteger.ONE : BigInteger.ZERO, linear);
+        }
+    }
+
+    @Test
+    void recognisesTheSameServers() {
+        ServerSet serverSet = new ServerSet(servers(5), 1);
+        assertTrue(serverSet.hasServers(servers(5)));
+        assertFalse(serverSet.hasServers(servers(4)));
+        List<Server> moved = servers(5);
+        moved.get(2).setUri(URI.create("http://localhost:3002/"));
+        assertFalse(serverSet.hasServers(moved));
+    }
+
+    private static List<Server> servers(int m) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        return servers;
+    }
+}
@@ -0,0 +1,80 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.data.BatchEnvelope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShareBatcherTest {
+
+    private List<URI> destinations;
+    private List<BatchEnvelope> envelopes;
+    private ShareBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        destinations = Collections.synchronizedList(new ArrayList<>());
+        envelopes = Collections.synchronizedList(new ArrayList<>());
+        batcher = new ShareBatcher(4, 60_000, (uri, envelope) -> {
+            destinations.add(uri);
+            envelopes.add((BatchEnvelope) envelope);
+            return CompletableFuture.completedFuture(uri);
+        });
+    }
+
+    @Test
+    void groupsPerDestinationAndFlushesWhenFull() {
+        List<CompletableFuture<URI>> acks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            acks.add(batcher.add(URI.create("http://server" + i % 2 + ":2000/api/hash-data"), i));
+        }
+        assertEquals(2, envelopes.size());
+        assertTrue(destinations.contains(URI.create("http://server0:2000/api/batch")));
+        assertTrue(destinations.contains(URI.create("http://server1:2000/api/batch")));
+
+        batcher.flushAll();
+        assertEquals(4, envelopes.size());
+        assertEquals(10, envelopes.stream().mapToInt(BatchEnvelope::size).sum());
+        assertEquals("/api/hash-data", envelopes.get(0).getEntries().get(0).getEndpoint());
+        assertTrue(acks.stream().allMatch(CompletableFuture::isDone));
+        assertEquals(URI.create("http://server1:2000/api/hash-data"), acks.get(3).join());
+    }
+
+    @Test
+    void flushesAfterTheDelay() {
+        batcher = new ShareBatcher(100, 10, (uri, envelope) -> {
+            envelopes.add((BatchEnvelope) envelope);
+            return CompletableFuture.completedFuture(uri);
+        });
+        CompletableFuture<URI> ack = batcher.add(URI.create("http://localhost:4000/lastClient/newNonce"), 1);
+        ack.join();
+        assertEquals(1, envelopes.size());
+    }
+
+    @Test
+    void closeSendsWhatIsWaitingAndStopsTheTimer() {
+        List<Object> sent = Collections.synchronizedList(new ArrayList<>());
+        batcher = new ShareBatcher(100, 60_000, (uri, payload) -> {
+            sent.add(payload);
+            return CompletableFuture.completedFuture(uri);
+        });
+        CompletableFuture<URI> ack = batcher.add(URI.create("http://server0:2000/api/hash-data"), 1);
+        assertFalse(ack.isDone());
+
+        batcher.close();
+        assertTrue(ack.isDone());
+        assertTrue(batcher.isClosed());
+        assertTrue(sent.get(0) instanceof BatchEnvelope);
+        // After close a payload is sent on its own, to its own uri.
+        URI uri = URI.create("http://server0:2000/api/hash-data");
+        assertEquals(uri, batcher.add(uri, 2).join());
+        assertEquals(2, sent.get(1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.master_thesis.client.util;
+
+import com.master_thesis.client.crypto.ShareKit;
+import com.master_thesis.client.data.Server;
+import com.master_thesis.client.data.ShareMode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShareKitPoolTest {
+
+    private static final BigInteger FIELD = BigInteger.ONE.shiftLeft(107).subtract(BigInteger.ONE);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(191);
+
+    @Test
+    void takesArePreparedAfterTheFirst() throws InterruptedException {
+        ShareKitPool pool = new ShareKitPool(8, 2);
+        ServerSet serverSet = servers(5, 1);
+        pool.take(0, FIELD, GENERATOR, 3, serverSet, ShareMode.INTEGER);
+        assertEquals(1, pool.getMisses());
+        awaitRefill(pool);
+
+        for (int i = 0; i < 6; i++) {
+            pool.take(0, FIELD, GENERATOR, 3, serverSet, ShareMode.INTEGER);
+        }
+        assertEquals(6, pool.getHits());
+        assertEquals(6.0 / 7, pool.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void kitsForOldParametersAreNotUsed() throws InterruptedException {
+        ShareKitPool pool = new ShareKitPool(4, 1);
+        ServerSet serverSet = servers(5, 1);
+        pool.take(0, FIELD, GENERATOR, 3, serverSet, ShareMode.INTEGER);
+        awaitRefill(pool);
+
+        ServerSet changed = servers(6, 2);
+        ShareKit kit = pool.take(0, FIELD, GENERATOR, 3, changed, ShareMode.INTEGER);
+        assertSame(changed, kit.getServerSet());
+        assertEquals(2, pool.getMisses());
+    }
+
+    // Waits until the refill that was started by the first take is done.
+    private static void awaitRefill(ShareKitPool pool) throws InterruptedException {
+        for (int i = 0; i < 100 && !pool.isFull(0, ShareMode.INTEGER); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(pool.isFull(0, ShareMode.INTEGER));
+    }
+
+    private static ServerSet servers(int count, long version) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Server server = new Server();
+            server.setServerID(i);
+            server.setUri(URI.create("http://localhost:" + (2000 + i) + "/"));
+            servers.add(server);
+        }
+        return new ServerSet(servers, version);
+    }
+}